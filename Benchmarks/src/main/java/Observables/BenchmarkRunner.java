@@ -0,0 +1,39 @@
+package Observables;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. Without arguments every benchmark is run with the GC
+ * profiler attached, so allocation per operation is reported next to the
+ * throughput. With arguments the usual JMH command line is used instead.
+ */
+public class BenchmarkRunner
+{
+    public static void main( String[] args ) throws Exception
+    {
+        if( args.length > 0 )
+        {
+            org.openjdk.jmh.Main.main( args );
+        }
+        else
+        {
+            runAll();
+        }
+    }
+
+    /**
+     * Runs every benchmark in this package with the GC profiler.
+     */
+    private static void runAll() throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+            .include( "Observables\\..*Benchmark" )
+            .addProfiler( GCProfiler.class )
+            .build();
+        new Runner( options ).run();
+    }
+}
@@ -0,0 +1,98 @@
+package Observables;
+
+import java.util.Random;
+
+/**
+ * Builds reproducible board contents for the benchmarks and puts a game back
+ * into them between invocations.
+ */
+class BoardFill
+{
+    // The cells are filled as if by I pieces.
+    static final byte FILL_CELL = 1;
+
+    //Attributes
+    private final int boardWidth, boardHeight;
+    // The cells of the board, indexed [ x ][ y ].
+    private final boolean[][] filled;
+
+    /**
+     * Creates a board whose lowest rows hold a stack with holes, the way a
+     * board looks part way through a game. No row of the stack is full.
+     * @param boardWidth the width of the board.
+     * @param boardHeight the height of the board.
+     * @param stackHeight the number of rows from the bottom that hold blocks.
+     * @param seed the seed that picks which cells are filled.
+     */
+    BoardFill( int boardWidth, int boardHeight, int stackHeight, long seed )
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        filled = new boolean[ boardWidth ][ boardHeight ];
+        Random random = new Random( seed );
+        for( int y = boardHeight - stackHeight; y < boardHeight; y++ )
+        {
+            for( int x = 0; x < boardWidth; x++ )
+            {
+                filled[ x ][ y ] = random.nextInt( 10 ) < 7;
+            }
+            // Keep at least one gap so that no line is cleared by accident.
+            filled[ random.nextInt( boardWidth ) ][ y ] = false;
+        }
+    }
+
+    /**
+     * Creates an empty board.
+     * @param boardWidth the width of the board.
+     * @param boardHeight the height of the board.
+     */
+    BoardFill( int boardWidth, int boardHeight )
+    {
+        this( boardWidth, boardHeight, 0, 0 );
+    }
+
+    /**
+     * Fills or empties a cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @param isFilled true to fill the cell.
+     */
+    void set( int x, int y, boolean isFilled )
+    {
+        filled[ x ][ y ] = isFilled;
+    }
+
+    /**
+     * Puts the cells of this board into a game, replacing whatever the game held.
+     * @param game the game to write into.
+     */
+    void applyTo( TetrisGame game )
+    {
+        for( int x = 0; x < boardWidth; x++ )
+        {
+            for( int y = 0; y < boardHeight; y++ )
+            {
+                game.setBlock( x, y, filled[ x ][ y ] ? FILL_CELL : Playfield.EMPTY );
+            }
+        }
+    }
+
+    /**
+     * @return the occupancy of this board as one bitmask per row.
+     */
+    int[] toRowMasks()
+    {
+        int[] masks = new int[ boardHeight ];
+        for( int x = 0; x < boardWidth; x++ )
+        {
+            for( int y = 0; y < boardHeight; y++ )
+            {
+                if( filled[ x ][ y ] )
+                {
+                    masks[ y ] |= 1 << x;
+                }
+            }
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,84 @@
+package Observables;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures locking a piece that completes a given number of lines.
+ *
+ * A vertical I piece rests in the leftmost column of a board whose lowest
+ * rows are full except for that column. The rows above them, up to the top
+ * of the piece, are missing a second cell so that they stay. Locking the
+ * piece clears exactly the requested number of lines.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LockBenchmark
+{
+    private static final int BOARD_WIDTH = 10, BOARD_HEIGHT = 18;
+    private static final int I_PIECE = 3;
+
+    @Param( { "0", "1", "2", "3", "4" } )
+    public int lines;
+
+    private BoardFill fill;
+    private TetrisGame game;
+
+    @Setup
+    public void setUp()
+    {
+        fill = new BoardFill( BOARD_WIDTH, BOARD_HEIGHT );
+        for( int y = BOARD_HEIGHT - 4; y < BOARD_HEIGHT; y++ )
+        {
+            boolean clears = y >= BOARD_HEIGHT - lines;
+            for( int x = 1; x < BOARD_WIDTH; x++ )
+            {
+                fill.set( x, y, clears || x != 1 );
+            }
+        }
+        game = new TetrisGame( BOARD_HEIGHT, BOARD_WIDTH );
+    }
+
+    /**
+     * Puts the board back and moves an I piece to the bottom of the leftmost column.
+     */
+    @Setup( Level.Invocation )
+    public void placePiece()
+    {
+        fill.applyTo( game );
+        game.spawnPiece( I_PIECE );
+        while( game.translate( -1, 0 ) )
+        {
+            // move it to the left wall
+        }
+        while( game.translate( 0, 1 ) )
+        {
+            // move it to the bottom
+        }
+    }
+
+    /**
+     * Locks the piece, clears the completed lines and spawns the next piece.
+     */
+    @Benchmark
+    public int lockActivePiece()
+    {
+        game.lockActivePiece();
+        return game.getLinesCleared();
+    }
+}
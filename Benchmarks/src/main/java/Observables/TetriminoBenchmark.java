@@ -0,0 +1,70 @@
+package Observables;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures moving and rotating a single piece against a board.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class TetriminoBenchmark
+{
+    private static final int BOARD_WIDTH = 10, BOARD_HEIGHT = 18;
+
+    @Param( { "0", "6", "12" } )
+    public int stackHeight;
+
+    @Param( { "0", "2", "3" } )
+    public int pieceType;
+
+    private int[] board;
+    private Tetrimino piece;
+    private int direction;
+
+    @Setup
+    public void setUp()
+    {
+        board = new BoardFill( BOARD_WIDTH, BOARD_HEIGHT, stackHeight, 42 ).toRowMasks();
+        piece = new Tetrimino( pieceType, BOARD_WIDTH, BOARD_HEIGHT );
+        direction = 1;
+    }
+
+    /**
+     * Moves the piece one block sideways, turning around at the walls.
+     */
+    @Benchmark
+    public boolean translate()
+    {
+        boolean moved = piece.translate( direction, 0, board );
+        if( !moved )
+        {
+            direction = -direction;
+        }
+        return moved;
+    }
+
+    /**
+     * Rotates the piece clockwise.
+     */
+    @Benchmark
+    public int transform()
+    {
+        piece.transform( true, board );
+        return piece.getRotation();
+    }
+}
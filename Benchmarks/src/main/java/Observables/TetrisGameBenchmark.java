@@ -0,0 +1,158 @@
+package Observables;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the operations of a TetrisGame on a board that is part way
+ * through a game. Operations that change the board for good (dropping and
+ * spawning pieces) put the board back before every invocation.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class TetrisGameBenchmark
+{
+    private static final int BOARD_WIDTH = 10, BOARD_HEIGHT = 18;
+    // A T piece, which spawns 2 rows tall.
+    private static final int PIECE_TYPE = 2;
+
+    @Param( { "0", "6", "12" } )
+    public int stackHeight;
+
+    private BoardFill fill;
+    private TetrisGame game;
+    private int direction;
+
+    @Setup
+    public void setUp()
+    {
+        fill = new BoardFill( BOARD_WIDTH, BOARD_HEIGHT, stackHeight, 42 );
+        game = new TetrisGame( BOARD_HEIGHT, BOARD_WIDTH );
+        reset();
+        direction = 1;
+    }
+
+    /**
+     * Puts the board back to the fill with a new piece at the spawn point.
+     */
+    private void reset()
+    {
+        fill.applyTo( game );
+        game.spawnPiece( PIECE_TYPE );
+    }
+
+    /**
+     * Moves the active piece one block sideways, turning around at the walls.
+     */
+    @Benchmark
+    public boolean translate()
+    {
+        boolean moved = game.translate( direction, 0 );
+        if( !moved )
+        {
+            direction = -direction;
+        }
+        return moved;
+    }
+
+    /**
+     * Rotates the active piece clockwise.
+     */
+    @Benchmark
+    public TetrisGame transform()
+    {
+        game.transform( true );
+        return game;
+    }
+
+    /**
+     * Reads every cell of the board through its view, the way an observer
+     * on the game's thread reads the board.
+     */
+    @Benchmark
+    public int readBoard()
+    {
+        BoardView board = game.getBoard();
+        int answer = 0;
+        for( int y = 0; y < board.getHeight(); y++ )
+        {
+            for( int x = 0; x < board.getWidth(); x++ )
+            {
+                answer += board.getCell( x, y );
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Reads the features a bot scores a board with.
+     */
+    @Benchmark
+    public int features()
+    {
+        BoardFeatures features = game.getFeatures();
+        return features.getAggregateHeight() + features.getHoles() + features.getBumpiness() + features.getWellSum();
+    }
+
+    /**
+     * Takes a snapshot of the board after moving the piece, the way an
+     * observer sees every change.
+     */
+    @Benchmark
+    public BoardSnapshot translateAndSnapshot()
+    {
+        game.translate( direction, 0 );
+        direction = -direction;
+        return game.snapshot();
+    }
+
+    /**
+     * State for the benchmarks that drop or spawn pieces, which leave the
+     * board changed.
+     */
+    @State( Scope.Thread )
+    public static class Fresh
+    {
+        @Setup( Level.Invocation )
+        public void reset( TetrisGameBenchmark benchmark )
+        {
+            benchmark.reset();
+        }
+    }
+
+    /**
+     * Drops the active piece to the stack, locks it and spawns the next piece.
+     */
+    @Benchmark
+    public TetrisGame hardTranslate( Fresh fresh )
+    {
+        game.hardTranslate();
+        return game;
+    }
+
+    /**
+     * Spawns a new piece. The piece left by the previous invocation is
+     * cleared by the reset.
+     */
+    @Benchmark
+    public TetrisGame createNewPiece( Fresh fresh )
+    {
+        game.createNewPiece();
+        return game;
+    }
+}
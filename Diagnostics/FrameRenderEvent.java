@@ -0,0 +1,17 @@
+package Diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A GUI drew a frame of a game.
+ */
+@Name( "tetris.FrameRender" )
+@Label( "Frame Render" )
+public class FrameRenderEvent extends GameEvent
+{
+    @Label( "Queued" )
+    @Timespan( Timespan.NANOSECONDS )
+    public long queuedNanos;
+}
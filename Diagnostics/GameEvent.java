@@ -0,0 +1,26 @@
+package Diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+
+/**
+ * The fields every Flight Recorder event of a game carries, so that the
+ * events of one game or one server session can be picked out of a
+ * recording next to the GC and safepoint events of the same time.
+ *
+ * The events cost next to nothing while no recording is running: the
+ * event objects do not escape and shouldCommit is false, so the fields are
+ * never filled in. Record them with -XX:StartFlightRecording or jcmd JFR.start.
+ */
+@Category( { "Tetris" } )
+public abstract class GameEvent extends jdk.jfr.Event
+{
+    @Label( "Game Id" )
+    @Description( "The id of the game within the JVM" )
+    public long gameId;
+
+    @Label( "Session Id" )
+    @Description( "The id of the server session playing the game, 0 outside a server" )
+    public long sessionId;
+}
@@ -0,0 +1,185 @@
+package Diagnostics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies and throughput of one game, split the way a slow frame can
+ * be split: how long input waited to reach the model, how long the model
+ * took to handle it, how long the observers took to be told, and how long
+ * the GUI took to draw the result once it got to it.
+ *
+ * Every figure is recorded as the game runs and may be exported at any
+ * time as text or JSON, from any thread.
+ */
+public class GameMetrics
+{
+    //Attributes
+    private final LatencyHistogram inputToModel = new LatencyHistogram( "inputToModel" ),
+                                   respond = new LatencyHistogram( "respond" ),
+                                   lock = new LatencyHistogram( "lock" ),
+                                   spawn = new LatencyHistogram( "spawn" ),
+                                   notify = new LatencyHistogram( "notify" ),
+                                   modelToRender = new LatencyHistogram( "modelToRender" ),
+                                   render = new LatencyHistogram( "render" );
+    private final LatencyHistogram[] histograms = { inputToModel, respond, lock, spawn, notify, modelToRender, render };
+    private final LongAdder inputs = new LongAdder(), notifications = new LongAdder(),
+                            pieces = new LongAdder(), lines = new LongAdder();
+    private volatile long startTime = System.nanoTime();
+
+    /**
+     * Records an action that reached the model.
+     * @param waitedNanos how long the action waited in its input queue.
+     */
+    public void recordInput( long waitedNanos )
+    {
+        inputToModel.record( waitedNanos );
+    }
+
+    /**
+     * Records the model handling an action, not counting telling the observers.
+     * @param nanos how long the action took.
+     */
+    public void recordRespond( long nanos )
+    {
+        inputs.increment();
+        respond.record( nanos );
+    }
+
+    /**
+     * Records a piece locking, line clears included.
+     * @param nanos how long the lock took.
+     * @param linesCleared the number of lines the piece cleared.
+     */
+    public void recordLock( long nanos, int linesCleared )
+    {
+        lock.record( nanos );
+        lines.add( linesCleared );
+    }
+
+    /**
+     * Records a new piece being spawned.
+     * @param nanos how long the spawn took.
+     */
+    public void recordSpawn( long nanos )
+    {
+        pieces.increment();
+        spawn.record( nanos );
+    }
+
+    /**
+     * Records the observers being told of a change.
+     * @param nanos how long every observer took together.
+     */
+    public void recordNotify( long nanos )
+    {
+        notifications.increment();
+        notify.record( nanos );
+    }
+
+    /**
+     * Records a frame drawn by a GUI.
+     * @param waitedNanos how long the change waited to be drawn after the model published it.
+     * @param drawNanos how long drawing took.
+     */
+    public void recordRender( long waitedNanos, long drawNanos )
+    {
+        modelToRender.record( waitedNanos );
+        render.record( drawNanos );
+    }
+
+    /**
+     * Forgets everything recorded so far and starts the rates anew.
+     */
+    public void reset()
+    {
+        for( LatencyHistogram histogram : histograms )
+        {
+            histogram.reset();
+        }
+        inputs.reset();
+        notifications.reset();
+        pieces.reset();
+        lines.reset();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * @return the seconds since the metrics were created or reset.
+     */
+    private double getSeconds()
+    {
+        return Math.max( 1e-9, ( System.nanoTime() - startTime ) / 1e9 );
+    }
+
+    /**
+     *
+     * @return Returns the number of observer notifications for every action handled.
+     */
+    public double getNotificationsPerInput()
+    {
+        long handled = inputs.sum();
+        return handled == 0 ? 0 : (double)notifications.sum() / handled;
+    }
+
+    /**
+     *
+     * @return Returns the number of pieces spawned per second.
+     */
+    public double getPiecesPerSecond()
+    {
+        return pieces.sum() / getSeconds();
+    }
+
+    /**
+     *
+     * @return Returns the number of lines cleared per second.
+     */
+    public double getLinesPerSecond()
+    {
+        return lines.sum() / getSeconds();
+    }
+
+    /**
+     * Exports the metrics as text, one line per figure, durations in microseconds.
+     * @return the text.
+     */
+    public String toText()
+    {
+        StringBuilder answer = new StringBuilder();
+        answer.append( String.format( Locale.ROOT, "uptime %.1fs inputs %d notifications %d (%.2f per input) pieces %d (%.2f/s) lines %d (%.2f/s)%n",
+                                      getSeconds(), inputs.sum(), notifications.sum(), getNotificationsPerInput(),
+                                      pieces.sum(), getPiecesPerSecond(), lines.sum(), getLinesPerSecond() ) );
+        for( LatencyHistogram h : histograms )
+        {
+            answer.append( String.format( Locale.ROOT, "%-14s count %d mean %.1fus p50 %.1fus p90 %.1fus p99 %.1fus p99.9 %.1fus max %.1fus%n",
+                                          h.getName(), h.getCount(), h.getMean() / 1e3,
+                                          h.getValueAtPercentile( 50 ) / 1e3, h.getValueAtPercentile( 90 ) / 1e3,
+                                          h.getValueAtPercentile( 99 ) / 1e3, h.getValueAtPercentile( 99.9 ) / 1e3,
+                                          h.getMax() / 1e3 ) );
+        }
+        return answer.toString();
+    }
+
+    /**
+     * Exports the metrics as a single line of JSON, durations in nanoseconds.
+     * @return the JSON object.
+     */
+    public String toJson()
+    {
+        StringBuilder answer = new StringBuilder();
+        answer.append( String.format( Locale.ROOT, "{\"uptimeSeconds\":%.3f,\"inputs\":%d,\"notifications\":%d,\"pieces\":%d,\"lines\":%d,"
+                                      + "\"notificationsPerInput\":%.4f,\"piecesPerSecond\":%.4f,\"linesPerSecond\":%.4f,\"latencies\":{",
+                                      getSeconds(), inputs.sum(), notifications.sum(), pieces.sum(), lines.sum(),
+                                      getNotificationsPerInput(), getPiecesPerSecond(), getLinesPerSecond() ) );
+        for( int i = 0; i < histograms.length; i++ )
+        {
+            LatencyHistogram h = histograms[ i ];
+            answer.append( String.format( Locale.ROOT, "%s\"%s\":{\"count\":%d,\"mean\":%.1f,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"p999\":%d,\"max\":%d}",
+                                          i > 0 ? "," : "", h.getName(), h.getCount(), h.getMean(),
+                                          h.getValueAtPercentile( 50 ), h.getValueAtPercentile( 90 ),
+                                          h.getValueAtPercentile( 99 ), h.getValueAtPercentile( 99.9 ), h.getMax() ) );
+        }
+        return answer.append( "}}" ).toString();
+    }
+}
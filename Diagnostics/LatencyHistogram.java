@@ -0,0 +1,165 @@
+package Diagnostics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts durations in buckets whose width grows with the duration, the way
+ * an HDR histogram does. Every power of two is split into 32 buckets, so a
+ * duration is known to within about 3% whether it is a few nanoseconds or
+ * a few minutes, and the histogram never grows.
+ *
+ * Recording takes no locks and may be done from any thread. Reading while
+ * durations are recorded gives a view that is at most a few recordings
+ * behind.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Durations below twice the sub buckets are counted exactly, every
+    // power of two above that gets its own run of sub buckets.
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS;
+
+    //Attributes
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+    private final AtomicLong count = new AtomicLong(), total = new AtomicLong(), max = new AtomicLong();
+
+    /**
+     * Creates an empty histogram.
+     * @param name the name the histogram is exported under.
+     */
+    public LatencyHistogram( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Counts a duration.
+     * @param nanos the duration in nanoseconds, negative durations count as 0.
+     */
+    public void record( long nanos )
+    {
+        long value = Math.max( 0, nanos );
+        counts.incrementAndGet( indexOf( value ) );
+        count.incrementAndGet();
+        total.addAndGet( value );
+        if( value > max.get() )
+        {
+            max.accumulateAndGet( value, Math::max );
+        }
+    }
+
+    /**
+     * Finds the bucket a duration is counted in.
+     */
+    private static int indexOf( long value )
+    {
+        int exponent = 63 - Long.numberOfLeadingZeros( value );
+        int answer;
+        if( exponent <= SUB_BUCKET_BITS )
+        {
+            answer = (int)value;
+        }
+        else
+        {
+            int shift = exponent - SUB_BUCKET_BITS;
+            answer = ( ( shift + 1 ) << SUB_BUCKET_BITS ) + (int)( value >>> shift ) - SUB_BUCKETS;
+        }
+        return answer;
+    }
+
+    /**
+     * Finds the largest duration a bucket counts.
+     */
+    private static long highestValueOf( int index )
+    {
+        long answer;
+        if( index < 2 * SUB_BUCKETS )
+        {
+            answer = index;
+        }
+        else
+        {
+            int shift = ( index >>> SUB_BUCKET_BITS ) - 1;
+            long subBucket = ( index & ( SUB_BUCKETS - 1 ) ) + SUB_BUCKETS;
+            answer = ( ( subBucket + 1 ) << shift ) - 1;
+        }
+        return answer;
+    }
+
+    /**
+     * Finds the duration that the given share of the recorded durations do
+     * not exceed.
+     * @param percentile the share from 0 to 100.
+     * @return the duration in nanoseconds, rounded up to the end of its
+     * bucket, or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile( double percentile )
+    {
+        long recorded = count.get();
+        long wanted = Math.max( 1, (long)Math.ceil( recorded * percentile / 100.0 ) );
+        long seen = 0;
+        for( int i = 0; i < BUCKETS && recorded > 0; i++ )
+        {
+            seen += counts.get( i );
+            if( seen >= wanted )
+            {
+                return Math.min( highestValueOf( i ), max.get() );
+            }
+        }
+        return recorded > 0 ? max.get() : 0;
+    }
+
+    /**
+     *
+     * @return Returns the name the histogram is exported under.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     *
+     * @return Returns the number of durations recorded.
+     */
+    public long getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     *
+     * @return Returns the longest duration recorded in nanoseconds.
+     */
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    /**
+     *
+     * @return Returns the mean of the recorded durations in nanoseconds, or 0.
+     */
+    public double getMean()
+    {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : (double)total.get() / recorded;
+    }
+
+    /**
+     * Forgets every recorded duration.
+     */
+    public void reset()
+    {
+        for( int i = 0; i < BUCKETS; i++ )
+        {
+            counts.set( i, 0 );
+        }
+        count.set( 0 );
+        total.set( 0 );
+        max.set( 0 );
+    }
+}
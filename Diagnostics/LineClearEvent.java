@@ -0,0 +1,18 @@
+package Diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Full rows were removed from the board in one sweep.
+ */
+@Name( "tetris.LineClear" )
+@Label( "Line Clear" )
+public class LineClearEvent extends GameEvent
+{
+    @Label( "Rows" )
+    public int rows;
+
+    @Label( "Total Lines" )
+    public int totalLines;
+}
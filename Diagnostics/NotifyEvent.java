@@ -0,0 +1,15 @@
+package Diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The observers of a game were told that it changed.
+ */
+@Name( "tetris.Notify" )
+@Label( "Observer Notification" )
+public class NotifyEvent extends GameEvent
+{
+    @Label( "Observers" )
+    public int observers;
+}
@@ -0,0 +1,18 @@
+package Diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A piece was locked, its line clears and the spawn of the next piece included.
+ */
+@Name( "tetris.PieceLock" )
+@Label( "Piece Lock" )
+public class PieceLockEvent extends GameEvent
+{
+    @Label( "Piece Type" )
+    public int pieceType;
+
+    @Label( "Lines Cleared" )
+    public int linesCleared;
+}
@@ -0,0 +1,18 @@
+package Diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A new piece was drawn and placed at the spawn point.
+ */
+@Name( "tetris.PieceSpawn" )
+@Label( "Piece Spawn" )
+public class PieceSpawnEvent extends GameEvent
+{
+    @Label( "Piece Type" )
+    public int pieceType;
+
+    @Label( "Game Over" )
+    public boolean gameOver;
+}
@@ -0,0 +1,18 @@
+package Diagnostics;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A game changed state, for example from waiting to playing.
+ */
+@Name( "tetris.StateTransition" )
+@Label( "State Transition" )
+public class StateTransitionEvent extends GameEvent
+{
+    @Label( "From" )
+    public String from;
+
+    @Label( "To" )
+    public String to;
+}
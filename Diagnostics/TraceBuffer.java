@@ -0,0 +1,138 @@
+package Diagnostics;
+
+import java.io.PrintStream;
+
+/**
+ * Keeps the latest trace records of a game in a ring of preallocated
+ * primitive arrays, so tracing never allocates, formats or waits on the
+ * console. The records are only turned into text when the trace is dumped,
+ * on demand or when the game fails.
+ *
+ * How much is traced is chosen once per JVM with -Dtetris.trace=off, info
+ * or debug, and the ring size with -Dtetris.trace.size. Callers check the
+ * level through the constants INFO and DEBUG before recording, and since
+ * those are static final the JIT drops the checks and the recording when
+ * the level is lower.
+ *
+ * Records are written by the thread advancing the game. A dump taken from
+ * another thread while the game runs may show the newest record half written.
+ */
+public class TraceBuffer
+{
+    private static final int LEVEL_OFF = 0, LEVEL_INFO = 1, LEVEL_DEBUG = 2;
+    private static final int LEVEL = parseLevel( System.getProperty( "tetris.trace", "off" ) );
+    /** Whether lifecycle events such as spawns, locks and line clears are traced. */
+    public static final boolean INFO = LEVEL >= LEVEL_INFO;
+    /** Whether every action, move and rotation is traced as well. */
+    public static final boolean DEBUG = LEVEL >= LEVEL_DEBUG;
+    private static final int ARGUMENTS = 4;
+    private static final TraceEvent[] EVENTS = TraceEvent.values();
+
+    //Attributes
+    private final int mask;
+    private final long[] times;
+    private final byte[] events;
+    private final int[] arguments;
+    private volatile long next;
+
+    /**
+     * Creates a buffer of the size set with -Dtetris.trace.size, 1024 records by default.
+     */
+    public TraceBuffer()
+    {
+        this( Integer.getInteger( "tetris.trace.size", 1024 ) );
+    }
+
+    /**
+     * Creates a buffer.
+     * @param capacity the number of records kept, rounded up to a power of two.
+     */
+    public TraceBuffer( int capacity )
+    {
+        int size = Integer.highestOneBit( Math.max( 2, capacity ) - 1 ) << 1;
+        mask = size - 1;
+        times = new long[ size ];
+        events = new byte[ size ];
+        arguments = new int[ size * ARGUMENTS ];
+    }
+
+    private static int parseLevel( String level )
+    {
+        int answer = LEVEL_OFF;
+        if( level.equalsIgnoreCase( "debug" ) )
+        {
+            answer = LEVEL_DEBUG;
+        }
+        else if( level.equalsIgnoreCase( "info" ) )
+        {
+            answer = LEVEL_INFO;
+        }
+        return answer;
+    }
+
+    /**
+     *
+     * @return Returns true if any level of tracing is on.
+     */
+    public static boolean isEnabled()
+    {
+        return LEVEL > LEVEL_OFF;
+    }
+
+    /**
+     * Adds a record, overwriting the oldest one once the ring is full.
+     * @param event the kind of record.
+     * @param a the first argument.
+     * @param b the second argument.
+     * @param c the third argument.
+     * @param d the fourth argument.
+     */
+    public void record( TraceEvent event, int a, int b, int c, int d )
+    {
+        long n = next;
+        int slot = (int)n & mask;
+        times[ slot ] = System.nanoTime();
+        events[ slot ] = (byte)event.ordinal();
+        int i = slot * ARGUMENTS;
+        arguments[ i ] = a;
+        arguments[ i + 1 ] = b;
+        arguments[ i + 2 ] = c;
+        arguments[ i + 3 ] = d;
+        next = n + 1;
+    }
+
+    /**
+     *
+     * @return Returns the number of records added since the buffer was created.
+     */
+    public long getRecordCount()
+    {
+        return next;
+    }
+
+    /**
+     * Writes the records still in the ring, oldest first, one per line with
+     * the time relative to the newest record.
+     * @param out the stream to write to.
+     */
+    public void dumpTo( PrintStream out )
+    {
+        long end = next;
+        long start = Math.max( 0, end - ( mask + 1 ) );
+        long last = end > 0 ? times[ (int)( end - 1 ) & mask ] : 0;
+        StringBuilder line = new StringBuilder();
+        for( long n = start; n < end; n++ )
+        {
+            int slot = (int)n & mask;
+            TraceEvent event = EVENTS[ events[ slot ] ];
+            line.setLength( 0 );
+            line.append( String.format( "%10.3fms %-14s", ( times[ slot ] - last ) / 1e6, event ) );
+            for( int i = 0; i < event.getArgumentCount(); i++ )
+            {
+                line.append( ' ' ).append( event.getArgumentName( i ) ).append( '=' )
+                    .append( arguments[ slot * ARGUMENTS + i ] );
+            }
+            out.println( line );
+        }
+    }
+}
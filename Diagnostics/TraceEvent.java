@@ -0,0 +1,45 @@
+package Diagnostics;
+
+/**
+ * The kinds of records a TraceBuffer holds, with the names of their
+ * arguments for when the trace is dumped.
+ */
+public enum TraceEvent
+{
+    ACTION( "action", "tick" ),
+    MOVE( "type", "x", "y" ),
+    MOVE_BLOCKED( "type", "x", "y" ),
+    ROTATE( "type", "rotation", "x", "y" ),
+    ROTATE_BLOCKED( "type", "rotation", "x", "y" ),
+    SPAWN( "type", "x", "y" ),
+    LOSS( "type", "lines" ),
+    LOCK( "type", "x", "y", "lines" ),
+    CLEAR( "rows", "lines" ),
+    GARBAGE( "lines", "hole" );
+
+    private final String[] arguments;
+
+    private TraceEvent( String... arguments )
+    {
+        this.arguments = arguments;
+    }
+
+    /**
+     *
+     * @return Returns the number of arguments the event uses.
+     */
+    public int getArgumentCount()
+    {
+        return arguments.length;
+    }
+
+    /**
+     * Gets the name of an argument.
+     * @param i the index of the argument.
+     * @return the name.
+     */
+    public String getArgumentName( int i )
+    {
+        return arguments[ i ];
+    }
+}
@@ -29,18 +29,147 @@
  
 
 
+import Observables.GameLoop;
+import Observables.Recording;
+import Observables.Replay;
 import Observables.TetrisGame;
+import Observers.AutoPlayer;
 import Observers.Board;
+import Server.GameServer;
+import Server.GarbageLink;
+import Server.SpectatorServer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
 /**
  * Creates objects needed to represent and display a tetris game.
  * @author Ethan
  */
 public class Main
 {
-    public static void main(String[] args) 
+    public static void main(String[] args) throws Exception
     {
+        // With --server [port] many headless games are hosted instead of one window.
+        if( args.length > 0 && args[ 0 ].equals( "--server" ) )
+        {
+            int port = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : GameServer.DEFAULT_PORT;
+            final GameServer server = new GameServer( port );
+            server.open();
+            Thread serverThread = new Thread( server, "GameServer" );
+            serverThread.start();
+            Runtime.getRuntime().addShutdownHook( new Thread( () ->
+            {
+                server.drain( 5000 );
+                try
+                {
+                    serverThread.join();
+                }
+                catch( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            } ) );
+            return;
+        }
+        // With --replay file a recorded game is played again without a window.
+        if( args.length > 1 && args[ 0 ].equals( "--replay" ) )
+        {
+            Recording recording;
+            try( InputStream in = new BufferedInputStream( new FileInputStream( args[ 1 ] ) ) )
+            {
+                recording = Recording.readFrom( in );
+            }
+            long start = System.nanoTime();
+            TetrisGame replayed = Replay.play( recording );
+            long millis = ( System.nanoTime() - start ) / 1000000;
+            System.out.println( "Replayed " + recording.getActionCount() + " actions over "
+                              + recording.getLength() + " ticks in " + millis + " ms: "
+                              + replayed.getLinesCleared() + " lines, game over " + replayed.isGameOver() );
+            return;
+        }
         TetrisGame g = new TetrisGame();
-        Board b = new Board(g);
+        // The game runs on the loop's own thread, the board only queues input.
+        GameLoop loop = new GameLoop( g );
+        Board b = new Board( g, loop.getInputQueue() );
         g.attach( b );
+        // With --bot the game is played by an AutoPlayer while the board watches.
+        AutoPlayer bot = null;
+        if( indexOf( args, "--bot" ) >= 0 )
+        {
+            bot = new AutoPlayer( g, loop.newInputQueue() );
+            g.attach( bot );
+            // The bot acknowledges its own losses and starts again at once.
+            b.setWatching( true );
+        }
+        // With --record file every action is logged and saved when the program exits.
+        int record = indexOf( args, "--record" );
+        if( record >= 0 && record + 1 < args.length )
+        {
+            final String file = args[ record + 1 ];
+            final Recording recording = g.startRecording( new Random().nextLong() );
+            Runtime.getRuntime().addShutdownHook( new Thread( () ->
+            {
+                try( OutputStream out = new BufferedOutputStream( new FileOutputStream( file ) ) )
+                {
+                    recording.writeTo( out );
+                }
+                catch( IOException e )
+                {
+                    e.printStackTrace();
+                }
+            } ) );
+        }
+        // With --versus-host port or --versus-join port the game is played
+        // against a game in another process, each sending the other garbage.
+        int host = indexOf( args, "--versus-host" ), join = indexOf( args, "--versus-join" );
+        boolean hosting = host >= 0 && host + 1 < args.length;
+        if( hosting || ( join >= 0 && join + 1 < args.length ) )
+        {
+            GarbageLink link = hosting ? GarbageLink.listen( Integer.parseInt( args[ host + 1 ] ), g )
+                                       : GarbageLink.connect( Integer.parseInt( args[ join + 1 ] ), g );
+            g.attach( link );
+            link.start();
+        }
+        // With --spectate [port] the game is streamed to spectators as it is played.
+        int spectate = indexOf( args, "--spectate" );
+        if( spectate >= 0 )
+        {
+            int port = spectate + 1 < args.length && !args[ spectate + 1 ].startsWith( "--" )
+                     ? Integer.parseInt( args[ spectate + 1 ] ) : SpectatorServer.DEFAULT_PORT;
+            SpectatorServer spectators = new SpectatorServer( port );
+            spectators.open();
+            g.attach( spectators );
+            Thread spectatorThread = new Thread( spectators, "SpectatorServer" );
+            spectatorThread.setDaemon( true );
+            spectatorThread.start();
+        }
+        loop.start();
+        if( bot != null )
+        {
+            bot.start();
+        }
+    }
+
+    /**
+     * Finds a flag among the arguments.
+     * @param args the arguments of the program.
+     * @param flag the flag to look for.
+     * @return the index of the flag, or -1 if it was not given.
+     */
+    private static int indexOf( String[] args, String flag )
+    {
+        for( int i = 0; i < args.length; i++ )
+        {
+            if( args[ i ].equals( flag ) )
+            {
+                return i;
+            }
+        }
+        return -1;
     }
 }
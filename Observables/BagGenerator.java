@@ -0,0 +1,51 @@
+package Observables;
+
+import java.util.SplittableRandom;
+
+/**
+ * Deals the pieces from a bag holding one of each of the 7 types, shuffled,
+ * and refills the bag once it is empty. Every type comes up once in every 7
+ * pieces, so at most 12 pieces separate two pieces of the same type.
+ */
+public class BagGenerator implements PieceGenerator
+{
+    private final SplittableRandom random;
+    private final int[] bag = { 0, 1, 2, 3, 4, 5, 6 };
+    private int dealt = bag.length;
+
+    /**
+     * Creates a generator.
+     * @param seed the seed the bags are shuffled with.
+     */
+    public BagGenerator( long seed )
+    {
+        this( new SplittableRandom( seed ) );
+    }
+
+    private BagGenerator( SplittableRandom random )
+    {
+        this.random = random;
+    }
+
+    public int next()
+    {
+        if( dealt == bag.length )
+        {
+            // Fisher-Yates shuffle of the refilled bag.
+            for( int i = bag.length - 1; i > 0; i-- )
+            {
+                int j = random.nextInt( i + 1 );
+                int type = bag[ i ];
+                bag[ i ] = bag[ j ];
+                bag[ j ] = type;
+            }
+            dealt = 0;
+        }
+        return bag[ dealt++ ];
+    }
+
+    public PieceGenerator split()
+    {
+        return new BagGenerator( random.split() );
+    }
+}
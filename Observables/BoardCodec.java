@@ -0,0 +1,257 @@
+package Observables;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a board and its active piece in a compact binary form, either as
+ * a whole board or as the cells that changed since an earlier board. The
+ * frames are read back with a DecodedBoard. Encoding writes straight into
+ * the caller's ByteBuffer and creates no objects.
+ *
+ * Every frame starts with the format version, the kind of frame, the width
+ * and height of the board and the board's version as a variable length
+ * integer, 7 bits per byte with the high bit set on every byte but the
+ * last. A delta also holds the version of the board it applies to. Then
+ * follows the active piece as a byte holding its type plus 1 in the low 3
+ * bits and its rotation above them, 0 for no piece, and its x and y as a
+ * byte each.
+ *
+ * A cell is 4 bits: 0 when empty, 8 for garbage, otherwise the type of its
+ * piece plus 1.
+ *
+ * KEY    every row from the top down as runs of equal cells. A run is one
+ *        byte, the cell in the top 4 bits and the length minus 1 below, so
+ *        an empty row of up to 16 cells takes one byte.
+ * DELTA  the number of changed cells as a variable length integer, then a
+ *        short per cell holding x in the top 5 bits, y in the next 7 and the
+ *        new cell in the low 4.
+ *
+ * Format 1 had 3 bit cells, runs of up to 32 cells and 8 bits of y in a
+ * delta, as there was no garbage yet. A DecodedBoard still reads it.
+ */
+public final class BoardCodec
+{
+    /** The version of the format written. */
+    public static final int FORMAT_VERSION = 2;
+    /** The kinds of frames. */
+    public static final byte KEY = 1, DELTA = 2;
+    static final int CELL_BITS = 4, RUN_BITS = 8 - CELL_BITS;
+    static final int RUN_MASK = ( 1 << RUN_BITS ) - 1;
+    // The piece byte keeps 3 bits for the type in every format.
+    static final int PIECE_BITS = 3, PIECE_MASK = ( 1 << PIECE_BITS ) - 1;
+    // Row masks hold up to 31 cells, and y takes the 11 bits of a delta x leaves over.
+    static final int MAX_WIDTH = Playfield.MAX_WIDTH, MAX_HEIGHT = 1 << ( 11 - CELL_BITS );
+
+    private BoardCodec()
+    {
+    }
+
+    /**
+     * Writes a whole board.
+     * @param board the board.
+     * @param piece the active piece, or null.
+     * @param out the buffer to write to, from its position on.
+     * @throws BufferOverflowException if the frame does not fit, the
+     * buffer's position is then undefined.
+     */
+    public static void encodeKey( BoardView board, Tetrimino piece, ByteBuffer out )
+    {
+        int width = board.getWidth(), height = board.getHeight();
+        checkSize( width, height );
+        putHeader( out, KEY, board, piece );
+        for( int y = 0; y < height; y++ )
+        {
+            int x = 0;
+            while( x < width )
+            {
+                byte cell = board.getCell( x, y );
+                int run = 1;
+                while( x + run < width && run <= RUN_MASK && board.getCell( x + run, y ) == cell )
+                {
+                    run++;
+                }
+                out.put( (byte)( ( cell << RUN_BITS ) | ( run - 1 ) ) );
+                x += run;
+            }
+        }
+    }
+
+    /**
+     * Writes the cells that differ between two versions of a board. A whole
+     * board is written instead when there is no earlier board of the same
+     * size, or when the whole board is not larger than the delta.
+     * @param previous the board the reader already has, or null.
+     * @param board the board now.
+     * @param piece the active piece, or null.
+     * @param out the buffer to write to, from its position on.
+     * @return KEY or DELTA, the kind of frame written.
+     * @throws BufferOverflowException if the frame does not fit, the
+     * buffer's position is then undefined.
+     */
+    public static byte encodeDelta( BoardView previous, BoardView board, Tetrimino piece, ByteBuffer out )
+    {
+        byte answer = KEY;
+        int width = board.getWidth(), height = board.getHeight();
+        int changed = 0, runs = 0;
+        if( previous != null && previous.getWidth() == width && previous.getHeight() == height )
+        {
+            for( int y = 0; y < height; y++ )
+            {
+                changed += countChanged( previous, board, y );
+                runs += countRuns( board, y );
+            }
+            if( ( changed * 2 ) + varLongSize( changed ) + varLongSize( previous.getVersion() ) < runs )
+            {
+                answer = DELTA;
+            }
+        }
+        if( answer == KEY )
+        {
+            encodeKey( board, piece, out );
+        }
+        else
+        {
+            checkSize( width, height );
+            putHeader( out, DELTA, board, piece );
+            putVarLong( out, previous.getVersion() );
+            putVarLong( out, changed );
+            for( int y = 0; y < height; y++ )
+            {
+                if( rowMayDiffer( previous, board, y ) )
+                {
+                    for( int x = 0; x < width; x++ )
+                    {
+                        byte cell = board.getCell( x, y );
+                        if( cell != previous.getCell( x, y ) )
+                        {
+                            out.putShort( (short)( ( x << 11 ) | ( y << CELL_BITS ) | cell ) );
+                        }
+                    }
+                }
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Works out the largest frame a board of the given size can take, for
+     * sizing buffers.
+     * @param width the width of the board.
+     * @param height the height of the board.
+     * @return the size in bytes.
+     */
+    public static int maxFrameSize( int width, int height )
+    {
+        // The header with two versions of up to 10 bytes, then a run per cell.
+        return 4 + 10 + 10 + 3 + ( width * height );
+    }
+
+    private static void checkSize( int width, int height )
+    {
+        if( width > MAX_WIDTH || height > MAX_HEIGHT )
+        {
+            throw new IllegalArgumentException( "Boards up to " + MAX_WIDTH + " by " + MAX_HEIGHT + " can be encoded" );
+        }
+    }
+
+    private static void putHeader( ByteBuffer out, byte kind, BoardView board, Tetrimino piece )
+    {
+        out.put( (byte)FORMAT_VERSION ).put( kind );
+        out.put( (byte)board.getWidth() ).put( (byte)board.getHeight() );
+        putVarLong( out, board.getVersion() );
+        if( piece == null )
+        {
+            out.put( (byte)0 ).put( (byte)0 ).put( (byte)0 );
+        }
+        else
+        {
+            out.put( (byte)( ( piece.getRotation() << PIECE_BITS ) | ( piece.getType() + 1 ) ) );
+            out.put( (byte)piece.getX() ).put( (byte)piece.getY() );
+        }
+    }
+
+    /**
+     * Checks whether a row can hold different cells in two boards. Rows that
+     * are empty in both, or that a snapshot shares with the other, cannot.
+     */
+    private static boolean rowMayDiffer( BoardView previous, BoardView board, int y )
+    {
+        boolean answer = ( previous.getRowMask( y ) | board.getRowMask( y ) ) != 0;
+        if( answer && previous instanceof BoardSnapshot && board instanceof BoardSnapshot )
+        {
+            answer = !( (BoardSnapshot)board ).sameRow( (BoardSnapshot)previous, y );
+        }
+        return answer;
+    }
+
+    private static int countChanged( BoardView previous, BoardView board, int y )
+    {
+        int answer = 0;
+        if( rowMayDiffer( previous, board, y ) )
+        {
+            for( int x = 0; x < board.getWidth(); x++ )
+            {
+                if( board.getCell( x, y ) != previous.getCell( x, y ) )
+                {
+                    answer++;
+                }
+            }
+        }
+        return answer;
+    }
+
+    private static int countRuns( BoardView board, int y )
+    {
+        int answer = 1, run = 1;
+        for( int x = 1; x < board.getWidth(); x++ )
+        {
+            if( board.getCell( x, y ) != board.getCell( x - 1, y ) || run > RUN_MASK )
+            {
+                answer++;
+                run = 1;
+            }
+            else
+            {
+                run++;
+            }
+        }
+        return answer;
+    }
+
+    static void putVarLong( ByteBuffer out, long value )
+    {
+        while( ( value & ~0x7FL ) != 0 )
+        {
+            out.put( (byte)( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        out.put( (byte)value );
+    }
+
+    static long getVarLong( ByteBuffer in )
+    {
+        long answer = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = in.get();
+            answer |= (long)( b & 0x7F ) << shift;
+            shift += 7;
+        }
+        while( ( b & 0x80 ) != 0 );
+        return answer;
+    }
+
+    private static int varLongSize( long value )
+    {
+        int answer = 1;
+        while( ( value & ~0x7FL ) != 0 )
+        {
+            value >>>= 7;
+            answer++;
+        }
+        return answer;
+    }
+}
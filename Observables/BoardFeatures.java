@@ -0,0 +1,335 @@
+package Observables;
+
+import java.util.Arrays;
+
+/**
+ * The features of a board of locked blocks that bots and analytics look
+ * at: the height of each column, how full each row is, the holes under the
+ * surface, the bumpiness of the surface and the wells in it.
+ *
+ * The features are kept up to date block by block as pieces lock, which
+ * only touches the column of the block and its neighbours. Clearing lines
+ * shifts the row counts and looks down only the columns whose top was
+ * cleared. The board itself is never scanned again, except when the game
+ * changes its cells some other way and the features are rebuilt.
+ *
+ * Outside this package the features can only be read.
+ */
+public class BoardFeatures
+{
+    //Attributes
+    private final int width, height;
+    // The y coordinate of the highest block in each column, or the height of
+    // the board for an empty column.
+    private final int[] tops;
+    // The number of blocks in each row.
+    private final int[] rowFill;
+    // The number of empty cells below the top of each column.
+    private final int[] columnHoles;
+    // How much lower each column is than both of its neighbours, a wall
+    // counts as higher than any column.
+    private final int[] wells;
+    // Scratch space for clearFullRows, the number of full rows below each row.
+    private final int[] fullBelow;
+    private int holes, bumpiness, aggregateHeight, wellSum;
+
+    /**
+     * Creates the features of an empty board.
+     * @param width the width of the board.
+     * @param height the height of the board.
+     */
+    BoardFeatures( int width, int height )
+    {
+        this.width = width;
+        this.height = height;
+        tops = new int[ width ];
+        rowFill = new int[ height ];
+        columnHoles = new int[ width ];
+        wells = new int[ width ];
+        fullBelow = new int[ height ];
+        clear();
+    }
+
+    /**
+     * Resets the features to those of an empty board.
+     */
+    void clear()
+    {
+        Arrays.fill( tops, height );
+        Arrays.fill( rowFill, 0 );
+        Arrays.fill( columnHoles, 0 );
+        holes = 0;
+        aggregateHeight = 0;
+        updateSurface();
+    }
+
+    /**
+     * Finds every feature again from the given board.
+     * @param rows the occupancy of each row, bit x of rows[ y ] is set when
+     * the cell (x, y) holds a block.
+     */
+    void rebuild( int[] rows )
+    {
+        clear();
+        for( int y = 0; y < height; y++ )
+        {
+            int cells = rows[ y ];
+            while( cells != 0 )
+            {
+                add( Integer.numberOfTrailingZeros( cells ), y );
+                cells &= cells - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a block to the board.
+     * @param x the x coordinate of an empty cell.
+     * @param y the y coordinate of the cell.
+     */
+    void add( int x, int y )
+    {
+        rowFill[ y ]++;
+        if( y < tops[ x ] )
+        {
+            // The column grows, the empty cells between the block and the
+            // old top are now covered.
+            int covered = tops[ x ] - y - 1;
+            columnHoles[ x ] += covered;
+            holes += covered;
+            setTop( x, y );
+        }
+        else
+        {
+            // A hole is filled from the side.
+            columnHoles[ x ]--;
+            holes--;
+        }
+    }
+
+    /**
+     * Removes every full row and lets the rows above fall into their place,
+     * the way Playfield.clearFullRows does.
+     * @param rows the occupancy of each row before the full rows are removed.
+     * @return the number of rows removed.
+     */
+    int clearFullRows( int[] rows )
+    {
+        int count = 0;
+        for( int y = height - 1; y >= 0; y-- )
+        {
+            fullBelow[ y ] = count;
+            if( rowFill[ y ] == width )
+            {
+                count++;
+            }
+        }
+        if( count > 0 )
+        {
+            for( int x = 0; x < width; x++ )
+            {
+                dropColumn( x, rows );
+            }
+            // Shift the row counts down over the full rows in one sweep.
+            int write = height - 1;
+            for( int read = height - 1; read >= 0; read-- )
+            {
+                if( rowFill[ read ] != width )
+                {
+                    rowFill[ write-- ] = rowFill[ read ];
+                }
+            }
+            for( ; write >= 0; write-- )
+            {
+                rowFill[ write ] = 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds the new top of a column once the full rows are removed. Every
+     * full row holds a block of every column, so all of them are at or
+     * below the top of the column. Only a column whose top is in a full row
+     * is looked down, until its next block that stays.
+     * @param x the x coordinate of the column.
+     * @param rows the occupancy of each row before the full rows are removed.
+     */
+    private void dropColumn( int x, int[] rows )
+    {
+        int y = tops[ x ];
+        // Holes between the top and the next block that stays stop being holes.
+        int uncovered = 0;
+        while( y < height && ( rowFill[ y ] == width || ( rows[ y ] & ( 1 << x ) ) == 0 ) )
+        {
+            if( rowFill[ y ] != width )
+            {
+                uncovered++;
+            }
+            y++;
+        }
+        columnHoles[ x ] -= uncovered;
+        holes -= uncovered;
+        // The block that is now on top falls by the full rows below it.
+        setTop( x, y < height ? y + fullBelow[ y ] : height );
+    }
+
+    /**
+     * Moves the top of a column, updating the height, bumpiness and wells
+     * that depend on it.
+     * @param x the x coordinate of the column.
+     * @param top the new top of the column.
+     */
+    private void setTop( int x, int top )
+    {
+        if( x > 0 )
+        {
+            bumpiness -= Math.abs( tops[ x ] - tops[ x - 1 ] );
+            bumpiness += Math.abs( top - tops[ x - 1 ] );
+        }
+        if( x < width - 1 )
+        {
+            bumpiness -= Math.abs( tops[ x ] - tops[ x + 1 ] );
+            bumpiness += Math.abs( top - tops[ x + 1 ] );
+        }
+        aggregateHeight -= top - tops[ x ];
+        tops[ x ] = top;
+        for( int column = Math.max( 0, x - 1 ); column <= Math.min( width - 1, x + 1 ); column++ )
+        {
+            wellSum -= wells[ column ];
+            wells[ column ] = findWell( column );
+            wellSum += wells[ column ];
+        }
+    }
+
+    /**
+     * Finds the bumpiness and wells of every column.
+     */
+    private void updateSurface()
+    {
+        bumpiness = 0;
+        wellSum = 0;
+        for( int x = 0; x < width; x++ )
+        {
+            if( x > 0 )
+            {
+                bumpiness += Math.abs( tops[ x ] - tops[ x - 1 ] );
+            }
+            wells[ x ] = findWell( x );
+            wellSum += wells[ x ];
+        }
+    }
+
+    /**
+     * @return how much lower a column is than both of its neighbours.
+     */
+    private int findWell( int x )
+    {
+        int left = x > 0 ? tops[ x - 1 ] : 0;
+        int right = x < width - 1 ? tops[ x + 1 ] : 0;
+        return Math.max( 0, tops[ x ] - Math.max( left, right ) );
+    }
+
+    /**
+     * Gets the top of a column.
+     * @param x the x coordinate of the column.
+     * @return the y coordinate of the highest block in the column, or the
+     * height of the board if the column is empty.
+     */
+    public int getColumnTop( int x )
+    {
+        return tops[ x ];
+    }
+
+    /**
+     * Gets the height of a column.
+     * @param x the x coordinate of the column.
+     * @return the number of rows from the bottom of the board up to and
+     * including the highest block in the column.
+     */
+    public int getColumnHeight( int x )
+    {
+        return height - tops[ x ];
+    }
+
+    /**
+     * Gets the number of blocks in a row.
+     * @param y the y coordinate of the row.
+     * @return the number of blocks, the width of the board for a full row.
+     */
+    public int getRowFill( int y )
+    {
+        return rowFill[ y ];
+    }
+
+    /**
+     * Gets the number of holes in a column.
+     * @param x the x coordinate of the column.
+     * @return the number of empty cells below the highest block of the column.
+     */
+    public int getColumnHoles( int x )
+    {
+        return columnHoles[ x ];
+    }
+
+    /**
+     * Gets the depth of the well in a column.
+     * @param x the x coordinate of the column.
+     * @return how many rows lower the column is than the lower of its
+     * neighbours, with walls counting as higher than any column, or 0.
+     */
+    public int getWellDepth( int x )
+    {
+        return wells[ x ];
+    }
+
+    /**
+     *
+     * @return Returns the number of empty cells below the highest block of their column.
+     */
+    public int getHoles()
+    {
+        return holes;
+    }
+
+    /**
+     *
+     * @return Returns the sum of the differences in height of neighbouring columns.
+     */
+    public int getBumpiness()
+    {
+        return bumpiness;
+    }
+
+    /**
+     *
+     * @return Returns the sum of the heights of all columns.
+     */
+    public int getAggregateHeight()
+    {
+        return aggregateHeight;
+    }
+
+    /**
+     *
+     * @return Returns the sum of the depths of all wells.
+     */
+    public int getWellSum()
+    {
+        return wellSum;
+    }
+
+    /**
+     *
+     * @return Returns the height of the highest column.
+     */
+    public int getMaxHeight()
+    {
+        int top = height;
+        for( int x = 0; x < width; x++ )
+        {
+            top = Math.min( top, tops[ x ] );
+        }
+        return height - top;
+    }
+}
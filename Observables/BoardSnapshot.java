@@ -0,0 +1,158 @@
+package Observables;
+
+/**
+ * An unchangeable copy of a board, as taken by Playfield.snapshot. A
+ * snapshot shares its rows with the playfield it was taken from and with
+ * other snapshots, a row is only copied once the playfield changes it, so
+ * keeping many snapshots costs little more than the rows that differ
+ * between them.
+ *
+ * Every field is final and the rows are never written once a snapshot
+ * refers to them, so snapshots may be handed to any thread. The version of
+ * a snapshot is the version the playfield had when it was taken.
+ */
+public final class BoardSnapshot implements BoardView
+{
+    //Attributes
+    private final int width, height;
+    // The cells of each row, indexed [ y ][ x ], see Playfield for the values.
+    private final byte[][] rows;
+    private final int[] masks;
+    private final long hash, version;
+    private final Zobrist zobrist;
+
+    /**
+     * Creates a snapshot of the given rows. The arrays must not be changed afterwards.
+     */
+    BoardSnapshot( int width, int height, byte[][] rows, int[] masks, long hash, long version, Zobrist zobrist )
+    {
+        this.width = width;
+        this.height = height;
+        this.rows = rows;
+        this.masks = masks;
+        this.hash = hash;
+        this.version = version;
+        this.zobrist = zobrist;
+    }
+
+    /**
+     * Gets the contents of a cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return Playfield.EMPTY, or the type of the piece the block came from plus 1.
+     */
+    @Override
+    public byte getCell( int x, int y )
+    {
+        return rows[ y ][ x ];
+    }
+
+    /**
+     * Checks whether a cell holds a block.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return true if the cell holds a block.
+     */
+    @Override
+    public boolean isOccupied( int x, int y )
+    {
+        return ( masks[ y ] & ( 1 << x ) ) != 0;
+    }
+
+    /**
+     * Gets the occupancy of a row.
+     * @param y the y coordinate of the row.
+     * @return a bitmask where bit x is set when the cell (x, y) holds a block.
+     */
+    @Override
+    public int getRowMask( int y )
+    {
+        return masks[ y ];
+    }
+
+    /**
+     *
+     * @return Returns a copy of the occupancy of every row, see getRowMask.
+     */
+    public int[] getRowMasks()
+    {
+        return masks.clone();
+    }
+
+    /**
+     * Checks whether a row of this snapshot is the very same row as in
+     * another snapshot, which means its cells are the same as well. Rows that
+     * are not shared may still hold the same cells.
+     * @param other the other snapshot.
+     * @param y the y coordinate of the row.
+     * @return true if both snapshots share the row.
+     */
+    public boolean sameRow( BoardSnapshot other, int y )
+    {
+        return rows[ y ] == other.rows[ y ];
+    }
+
+    /**
+     * Gets the rows of the snapshot for a Playfield to continue from.
+     */
+    byte[][] getRows()
+    {
+        return rows;
+    }
+
+    /**
+     * Gets the row masks of the snapshot for a Playfield to continue from.
+     */
+    int[] getMasks()
+    {
+        return masks;
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist hash of every occupied cell.
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     *
+     * @return Returns the version the playfield had when the snapshot was taken.
+     */
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist keys the hash was computed with.
+     */
+    public Zobrist getZobrist()
+    {
+        return zobrist;
+    }
+
+    /**
+     *
+     * @return Returns the width of the board in cells.
+     */
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     *
+     * @return Returns the height of the board in cells.
+     */
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+}
@@ -0,0 +1,95 @@
+package Observables;
+
+/**
+ * Read only access to the cells of a board, straight from where they are
+ * stored. A Playfield is a live view that follows every change of the
+ * board and may only be read on the thread changing it, a BoardSnapshot is
+ * a view that never changes and may be read anywhere.
+ *
+ * Every change to a board increases its version, so a reader that keeps
+ * the version it last saw can tell whether there is anything new to read.
+ * Versions are only comparable between views of the same board.
+ */
+public interface BoardView
+{
+    /**
+     * Visits the rows of a board, see forEachRow.
+     */
+    @FunctionalInterface
+    public interface RowVisitor
+    {
+        /**
+         * Called for a row of the board.
+         * @param y the y coordinate of the row.
+         * @param mask a bitmask where bit x is set when the cell (x, y) holds a block.
+         */
+        public void visitRow( int y, int mask );
+    }
+
+    /**
+     *
+     * @return Returns the width of the board in cells.
+     */
+    public int getWidth();
+
+    /**
+     *
+     * @return Returns the height of the board in cells.
+     */
+    public int getHeight();
+
+    /**
+     * Gets the contents of a cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return Playfield.EMPTY, or the type of the piece the block came from plus 1.
+     */
+    public byte getCell( int x, int y );
+
+    /**
+     * Gets the occupancy of a row.
+     * @param y the y coordinate of the row.
+     * @return a bitmask where bit x is set when the cell (x, y) holds a block.
+     */
+    public int getRowMask( int y );
+
+    /**
+     *
+     * @return Returns the number of changes made to the board so far.
+     */
+    public long getVersion();
+
+    /**
+     * Checks whether a cell holds a block.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return true if the cell holds a block.
+     */
+    public default boolean isOccupied( int x, int y )
+    {
+        return ( getRowMask( y ) & ( 1 << x ) ) != 0;
+    }
+
+    /**
+     * Checks whether the board changed since a version was read.
+     * @param version a version read from this view before.
+     * @return true if the board changed since.
+     */
+    public default boolean changedSince( long version )
+    {
+        return getVersion() != version;
+    }
+
+    /**
+     * Visits every row from the top down, without copying any of them.
+     * @param visitor the visitor to call for each row.
+     */
+    public default void forEachRow( RowVisitor visitor )
+    {
+        int height = getHeight();
+        for( int y = 0; y < height; y++ )
+        {
+            visitor.visitRow( y, getRowMask( y ) );
+        }
+    }
+}
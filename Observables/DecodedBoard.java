@@ -0,0 +1,222 @@
+package Observables;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * A board read from frames written by BoardCodec. Key frames replace the
+ * board and deltas are applied on top of it, in place, so that decoding
+ * creates no objects unless the size of the board changes.
+ *
+ * A decoded board is not thread safe.
+ */
+public class DecodedBoard implements BoardView
+{
+    //Attributes
+    private int width, height;
+    private byte[] cells = new byte[ 0 ];
+    private int[] masks = new int[ 0 ];
+    private long version = -1;
+    private int pieceType = -1, pieceRotation, pieceX, pieceY;
+
+    /**
+     * Reads a frame from the buffer's position on.
+     * @param in the buffer holding the frame, left after the frame.
+     * @return true if the frame was applied, false if it was a delta to
+     * another version than this board's, which leaves the board as it was.
+     * @throws IllegalArgumentException if the frame has another format version.
+     * @throws BufferUnderflowException if the frame is cut short.
+     */
+    public boolean decode( ByteBuffer in )
+    {
+        boolean answer = true;
+        int format = in.get();
+        if( format < 1 || format > BoardCodec.FORMAT_VERSION )
+        {
+            throw new IllegalArgumentException( "Unsupported board format " + format );
+        }
+        // Format 1 had 3 bit cells, see BoardCodec.
+        int cellBits = format == 1 ? 3 : BoardCodec.CELL_BITS;
+        int runBits = 8 - cellBits;
+        int cellMask = ( 1 << cellBits ) - 1, runMask = ( 1 << runBits ) - 1;
+        int rowMask = ( 1 << ( 11 - cellBits ) ) - 1;
+        byte kind = in.get();
+        int frameWidth = in.get() & 0xFF, frameHeight = in.get() & 0xFF;
+        long frameVersion = BoardCodec.getVarLong( in );
+        int piece = in.get() & 0xFF;
+        int x = in.get(), y = in.get();
+        if( kind == BoardCodec.KEY )
+        {
+            resize( frameWidth, frameHeight );
+            for( int row = 0; row < height; row++ )
+            {
+                int mask = 0;
+                int column = 0;
+                while( column < width )
+                {
+                    int run = in.get() & 0xFF;
+                    byte cell = (byte)( run >>> runBits );
+                    int start = column;
+                    int end = Math.min( width, start + ( run & runMask ) + 1 );
+                    for( ; column < end; column++ )
+                    {
+                        cells[ ( row * width ) + column ] = cell;
+                    }
+                    if( cell != Playfield.EMPTY )
+                    {
+                        mask |= ( ( 1 << end ) - 1 ) & ~( ( 1 << start ) - 1 );
+                    }
+                }
+                masks[ row ] = mask;
+            }
+        }
+        else if( kind == BoardCodec.DELTA )
+        {
+            long base = BoardCodec.getVarLong( in );
+            int count = (int)BoardCodec.getVarLong( in );
+            if( base != version || frameWidth != width || frameHeight != height )
+            {
+                in.position( in.position() + ( count * 2 ) );
+                answer = false;
+            }
+            else
+            {
+                for( int i = 0; i < count; i++ )
+                {
+                    int packed = in.getShort() & 0xFFFF;
+                    int column = packed >>> 11;
+                    int row = ( packed >>> cellBits ) & rowMask;
+                    byte cell = (byte)( packed & cellMask );
+                    cells[ ( row * width ) + column ] = cell;
+                    if( cell == Playfield.EMPTY )
+                    {
+                        masks[ row ] &= ~( 1 << column );
+                    }
+                    else
+                    {
+                        masks[ row ] |= 1 << column;
+                    }
+                }
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException( "Unknown frame kind " + kind );
+        }
+        if( answer )
+        {
+            version = frameVersion;
+            pieceType = ( piece & BoardCodec.PIECE_MASK ) - 1;
+            pieceRotation = piece >>> BoardCodec.PIECE_BITS;
+            pieceX = x;
+            pieceY = y;
+        }
+        return answer;
+    }
+
+    /**
+     * Makes room for a board of the given size.
+     */
+    private void resize( int newWidth, int newHeight )
+    {
+        if( newWidth * newHeight != cells.length )
+        {
+            cells = new byte[ newWidth * newHeight ];
+        }
+        if( newHeight != masks.length )
+        {
+            masks = new int[ newHeight ];
+        }
+        width = newWidth;
+        height = newHeight;
+    }
+
+    /**
+     *
+     * @return Returns the width of the board in cells.
+     */
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     *
+     * @return Returns the height of the board in cells.
+     */
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Gets the contents of a cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return Playfield.EMPTY, or the type of the piece the block came from plus 1.
+     */
+    @Override
+    public byte getCell( int x, int y )
+    {
+        return cells[ ( y * width ) + x ];
+    }
+
+    /**
+     * Gets the occupancy of a row.
+     * @param y the y coordinate of the row.
+     * @return a bitmask where bit x is set when the cell (x, y) holds a block.
+     */
+    @Override
+    public int getRowMask( int y )
+    {
+        return masks[ y ];
+    }
+
+    /**
+     *
+     * @return Returns the version of the board the last frame was encoded from, or -1 before the first frame.
+     */
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     *
+     * @return Returns the type of the active piece from 0-6, or -1 if there was none.
+     */
+    public int getPieceType()
+    {
+        return pieceType;
+    }
+
+    /**
+     *
+     * @return Returns the rotation of the active piece.
+     */
+    public int getPieceRotation()
+    {
+        return pieceRotation;
+    }
+
+    /**
+     *
+     * @return Returns the x coordinate of the active piece.
+     */
+    public int getPieceX()
+    {
+        return pieceX;
+    }
+
+    /**
+     *
+     * @return Returns the y coordinate of the active piece.
+     */
+    public int getPieceY()
+    {
+        return pieceY;
+    }
+}
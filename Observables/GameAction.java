@@ -0,0 +1,26 @@
+package Observables;
+
+/**
+ * The actions a client can perform on a TetrisGame. Input sources such as the
+ * Board translate their own events (key presses, dialogs) into these actions
+ * so that the game itself does not depend on any GUI classes.
+ */
+public enum GameAction
+{
+    /** Moves the active piece 1 block to the left. */
+    LEFT,
+    /** Moves the active piece 1 block to the right. */
+    RIGHT,
+    /** Moves the active piece 1 block down, locking it if it cannot move. */
+    SOFT_DROP,
+    /** The active piece falls to its final position and locks into place. */
+    HARD_DROP,
+    /** Rotates the active piece clockwise by 90 degrees. */
+    ROTATE_CW,
+    /** Rotates the active piece counter clockwise by 90 degrees. */
+    ROTATE_CCW,
+    /** Starts a new game from the waiting state. */
+    START,
+    /** The client has acknowledged that they lost, the game returns to waiting. */
+    LOSS_ACKNOWLEDGED
+}
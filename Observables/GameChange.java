@@ -0,0 +1,302 @@
+package Observables;
+
+/**
+ * A change to a TetrisGame, published to the subscribers of the game. The
+ * changes of a game describe only what is different from before, so a
+ * subscriber that starts from a snapshot of the board can keep its own copy
+ * up to date without ever reading the whole board again.
+ *
+ * Changes are numbered one after the other per game. A subscriber that is
+ * too slow misses changes rather than holding the game up, and can tell
+ * from a gap in the numbers that it should take a new snapshot.
+ *
+ * Cells are given as the x and y coordinates of each block one after the
+ * other.
+ */
+public abstract class GameChange
+{
+    private static final int[] NO_CELLS = new int[ 0 ];
+
+    //Attributes
+    private final long gameId;
+    private final long sequence;
+    private final long tick;
+
+    /**
+     * Creates a change.
+     * @param gameId the id of the game that changed.
+     * @param sequence the number of the change within the game.
+     * @param tick the tick of the game the change happened on.
+     */
+    protected GameChange( long gameId, long sequence, long tick )
+    {
+        this.gameId = gameId;
+        this.sequence = sequence;
+        this.tick = tick;
+    }
+
+    /**
+     *
+     * @return Returns the id of the game that changed.
+     */
+    public long getGameId()
+    {
+        return gameId;
+    }
+
+    /**
+     *
+     * @return Returns the number of the change, one more than the change before it.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     *
+     * @return Returns the tick of the game the change happened on.
+     */
+    public long getTick()
+    {
+        return tick;
+    }
+
+    /**
+     * Copies the cells of a piece.
+     * @param piece the piece, or null for no cells.
+     * @return the x and y coordinates of the blocks of the piece.
+     */
+    static int[] cellsOf( Tetrimino piece )
+    {
+        int[] answer = NO_CELLS;
+        if( piece != null )
+        {
+            answer = new int[ 8 ];
+            for( int i = 0; i < 4; i++ )
+            {
+                answer[ i * 2 ] = piece.getBlockX( i );
+                answer[ ( i * 2 ) + 1 ] = piece.getBlockY( i );
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * The active piece moved, rotated or was spawned. A spawned piece has no
+     * old cells.
+     */
+    public static final class PieceMoved extends GameChange
+    {
+        private final int pieceType;
+        private final int[] oldCells, newCells;
+
+        PieceMoved( long gameId, long sequence, long tick, int pieceType, int[] oldCells, int[] newCells )
+        {
+            super( gameId, sequence, tick );
+            this.pieceType = pieceType;
+            this.oldCells = oldCells;
+            this.newCells = newCells;
+        }
+
+        /**
+         *
+         * @return Returns the type of the piece from 0-6.
+         */
+        public int getPieceType()
+        {
+            return pieceType;
+        }
+
+        /**
+         *
+         * @return Returns the cells the piece left, empty for a spawned piece.
+         */
+        public int[] getOldCells()
+        {
+            return oldCells.clone();
+        }
+
+        /**
+         *
+         * @return Returns the cells the piece is on now.
+         */
+        public int[] getNewCells()
+        {
+            return newCells.clone();
+        }
+    }
+
+    /**
+     * The active piece was locked into the board, its cells stay filled.
+     */
+    public static final class PieceLocked extends GameChange
+    {
+        private final int pieceType;
+        private final int[] cells;
+
+        PieceLocked( long gameId, long sequence, long tick, int pieceType, int[] cells )
+        {
+            super( gameId, sequence, tick );
+            this.pieceType = pieceType;
+            this.cells = cells;
+        }
+
+        /**
+         *
+         * @return Returns the type of the piece from 0-6.
+         */
+        public int getPieceType()
+        {
+            return pieceType;
+        }
+
+        /**
+         *
+         * @return Returns the cells the piece was locked on.
+         */
+        public int[] getCells()
+        {
+            return cells.clone();
+        }
+    }
+
+    /**
+     * Full lines were removed and the rows above them moved down.
+     */
+    public static final class LinesCleared extends GameChange
+    {
+        private final int[] rows;
+        private final int totalLines;
+
+        LinesCleared( long gameId, long sequence, long tick, int[] rows, int totalLines )
+        {
+            super( gameId, sequence, tick );
+            this.rows = rows;
+            this.totalLines = totalLines;
+        }
+
+        /**
+         *
+         * @return Returns the y coordinates the lines had, from the top down.
+         */
+        public int[] getRows()
+        {
+            return rows.clone();
+        }
+
+        /**
+         *
+         * @return Returns the number of lines cleared in the game so far.
+         */
+        public int getTotalLines()
+        {
+            return totalLines;
+        }
+    }
+
+    /**
+     * Garbage rows from an opponent were added at the bottom. The active
+     * piece is taken off the board first, then every row moves up by the
+     * number of garbage rows and the garbage fills the rows freed at the
+     * bottom. The piece is put back by the PieceMoved that follows, unless
+     * the game is over.
+     */
+    public static final class GarbageAdded extends GameChange
+    {
+        private final int lines, hole;
+        private final int[] removedCells;
+
+        GarbageAdded( long gameId, long sequence, long tick, int lines, int hole, int[] removedCells )
+        {
+            super( gameId, sequence, tick );
+            this.lines = lines;
+            this.hole = hole;
+            this.removedCells = removedCells;
+        }
+
+        /**
+         *
+         * @return Returns the number of garbage rows.
+         */
+        public int getLines()
+        {
+            return lines;
+        }
+
+        /**
+         *
+         * @return Returns the column of the empty cell of each garbage row.
+         */
+        public int getHole()
+        {
+            return hole;
+        }
+
+        /**
+         *
+         * @return Returns the cells of the active piece taken off the board before the rows moved.
+         */
+        public int[] getRemovedCells()
+        {
+            return removedCells.clone();
+        }
+    }
+
+    /**
+     * The game went into another state. A game going back to the waiting
+     * state has an empty board.
+     */
+    public static final class StateChanged extends GameChange
+    {
+        private final String from, to;
+
+        StateChanged( long gameId, long sequence, long tick, String from, String to )
+        {
+            super( gameId, sequence, tick );
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         *
+         * @return Returns the simple class name of the old state, or null for a new game.
+         */
+        public String getFrom()
+        {
+            return from;
+        }
+
+        /**
+         *
+         * @return Returns the simple class name of the new state.
+         */
+        public String getTo()
+        {
+            return to;
+        }
+    }
+
+    /**
+     * A new piece could not be placed and the game is lost.
+     */
+    public static final class GameOver extends GameChange
+    {
+        private final int totalLines;
+
+        GameOver( long gameId, long sequence, long tick, int totalLines )
+        {
+            super( gameId, sequence, tick );
+            this.totalLines = totalLines;
+        }
+
+        /**
+         *
+         * @return Returns the number of lines cleared in the game.
+         */
+        public int getTotalLines()
+        {
+            return totalLines;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package Observables;
+
+/**
+ * Definition of the GameListener interface. A GameListener is attached to a
+ * TetrisGame and is told whenever the game changes so that it can represent
+ * the game, for example by drawing it in a GUI.
+ */
+public interface GameListener
+{
+    /**
+     * Called whenever an attribute or the state of the game changes.
+     * @param game the game that changed.
+     */
+    public void gameUpdated( TetrisGame game );
+
+    /**
+     * Called when a new piece cannot be placed and the client has lost.
+     * @param game the game that was lost.
+     */
+    public void gameLost( TetrisGame game );
+
+    /**
+     * Called once when a locked piece completes lines, with every line it
+     * cleared. Listeners that only draw the board may ignore it.
+     * @param game the game the lines were cleared in.
+     * @param rows the y coordinates the lines had, from the top down.
+     */
+    public default void linesCleared( TetrisGame game, int[] rows )
+    {
+    }
+}
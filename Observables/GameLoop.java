@@ -0,0 +1,271 @@
+package Observables;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Advances a TetrisGame with a fixed logical tick. The loop keeps a schedule
+ * of when each tick is due using System.nanoTime, so the game moves forward
+ * by the same number of ticks no matter how fast rendering or input are.
+ * When the loop falls behind it runs up to a set number of ticks at once to
+ * catch up, and skips the remaining ticks if it is further behind than that.
+ *
+ * Input reaches the game through the loop's InputQueues, one per input
+ * source. At the start of every tick the queued actions are performed in one
+ * batch, so the game is only ever touched by the thread advancing the loop.
+ */
+public class GameLoop implements Runnable
+{
+    public static final int DEFAULT_TICKS_PER_SECOND = 60;
+    public static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+
+    //Attributes
+    private final TetrisGame game;
+    private final InputQueue input = new InputQueue();
+    private final CopyOnWriteArrayList<InputQueue> otherInputs = new CopyOnWriteArrayList<InputQueue>();
+    private final long tickNanos;
+    private final int maxCatchUpTicks;
+    private long nextTickTime;
+    private volatile boolean running;
+    private Thread thread;
+    // Tick metrics, only written by the thread advancing the loop.
+    private volatile long tickCount, skippedTicks, lastTickNanos, maxTickNanos, totalTickNanos;
+
+    /**
+     * Creates a loop for a game with the default tick rate and catch up.
+     * @param game the game to advance.
+     */
+    public GameLoop( TetrisGame game )
+    {
+        this( game, DEFAULT_TICKS_PER_SECOND, DEFAULT_MAX_CATCH_UP_TICKS );
+    }
+
+    /**
+     * Creates a loop for a game.
+     * @param game the game to advance.
+     * @param ticksPerSecond the number of logical ticks per second.
+     * @param maxCatchUpTicks the most ticks that are run at once when the loop
+     * has fallen behind. Any further ticks that are due are skipped.
+     */
+    public GameLoop( TetrisGame game, int ticksPerSecond, int maxCatchUpTicks )
+    {
+        this.game = game;
+        this.tickNanos = 1000000000L / ticksPerSecond;
+        this.maxCatchUpTicks = maxCatchUpTicks;
+    }
+
+    /**
+     * Starts advancing the game on a new thread.
+     */
+    public synchronized void start()
+    {
+        if( thread == null )
+        {
+            running = true;
+            nextTickTime = System.nanoTime();
+            thread = new Thread( this, "GameLoop" );
+            thread.setDaemon( true );
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the thread started by start and waits for it to finish.
+     */
+    public synchronized void stop()
+    {
+        running = false;
+        if( thread != null )
+        {
+            LockSupport.unpark( thread );
+            try
+            {
+                thread.join();
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /**
+     * Runs ticks as they become due until the loop is stopped.
+     */
+    public void run()
+    {
+        while( running )
+        {
+            advance( System.nanoTime() );
+            long wait = nextTickTime - System.nanoTime();
+            if( wait > 0 )
+            {
+                LockSupport.parkNanos( this, wait );
+            }
+        }
+    }
+
+    /**
+     * Runs every tick that is due at the given time. This lets a caller
+     * drive the loop from its own thread or scheduler instead of start.
+     * @param now the current System.nanoTime.
+     * @return the number of ticks that were run.
+     */
+    public int advance( long now )
+    {
+        int ran = 0;
+        while( now - nextTickTime >= 0 && ran < maxCatchUpTicks )
+        {
+            step();
+            nextTickTime += tickNanos;
+            ran++;
+        }
+        // Too far behind to catch up, drop the ticks that are still due.
+        if( now - nextTickTime >= 0 )
+        {
+            long behind = ( ( now - nextTickTime ) / tickNanos ) + 1;
+            skippedTicks += behind;
+            nextTickTime += behind * tickNanos;
+        }
+        return ran;
+    }
+
+    /**
+     * Sets the time the next tick is due, for callers that drive the loop
+     * with advance.
+     * @param time the System.nanoTime at which the next tick is due.
+     */
+    public void setNextTickTime( long time )
+    {
+        nextTickTime = time;
+    }
+
+    /**
+     *
+     * @return Returns the System.nanoTime at which the next tick is due.
+     */
+    public long getNextTickTime()
+    {
+        return nextTickTime;
+    }
+
+    /**
+     * Runs a single tick of the game and records how long it took. The
+     * actions queued since the last tick are performed first, and the
+     * observers see the result of the whole tick as one update.
+     */
+    private void step()
+    {
+        long start = System.nanoTime();
+        game.beginUpdate();
+        try
+        {
+            input.drainTo( game );
+            for( InputQueue other : otherInputs )
+            {
+                other.drainTo( game );
+            }
+            game.tick();
+        }
+        catch( RuntimeException e )
+        {
+            // Leave the moves that led up to the failure next to the stack trace.
+            if( game.getTrace() != null )
+            {
+                System.err.println( "Trace of game " + game.getId() + " before " + e );
+                game.getTrace().dumpTo( System.err );
+            }
+            throw e;
+        }
+        finally
+        {
+            game.endUpdate();
+        }
+        long duration = System.nanoTime() - start;
+        lastTickNanos = duration;
+        totalTickNanos += duration;
+        if( duration > maxTickNanos )
+        {
+            maxTickNanos = duration;
+        }
+        tickCount++;
+    }
+
+    /**
+     *
+     * @return Returns the queue that the main input source puts its actions in.
+     */
+    public InputQueue getInputQueue()
+    {
+        return input;
+    }
+
+    /**
+     * Creates another queue for an input source that runs on its own thread,
+     * since every queue only allows a single producer. The new queue is
+     * drained after the main queue at every tick.
+     * @return the new queue.
+     */
+    public InputQueue newInputQueue()
+    {
+        InputQueue queue = new InputQueue();
+        otherInputs.add( queue );
+        return queue;
+    }
+
+    /**
+     *
+     * @return Returns the length of a tick in nanoseconds.
+     */
+    public long getTickNanos()
+    {
+        return tickNanos;
+    }
+
+    /**
+     *
+     * @return Returns the number of ticks that have been run.
+     */
+    public long getTickCount()
+    {
+        return tickCount;
+    }
+
+    /**
+     *
+     * @return Returns the number of ticks that were skipped because the loop fell too far behind.
+     */
+    public long getSkippedTicks()
+    {
+        return skippedTicks;
+    }
+
+    /**
+     *
+     * @return Returns how long the last tick took in nanoseconds.
+     */
+    public long getLastTickNanos()
+    {
+        return lastTickNanos;
+    }
+
+    /**
+     *
+     * @return Returns how long the slowest tick took in nanoseconds.
+     */
+    public long getMaxTickNanos()
+    {
+        return maxTickNanos;
+    }
+
+    /**
+     *
+     * @return Returns how long a tick took on average in nanoseconds.
+     */
+    public long getAverageTickNanos()
+    {
+        long count = tickCount;
+        return count == 0 ? 0 : totalTickNanos / count;
+    }
+}
@@ -1,8 +1,6 @@
 
 package Observables;
 
-import java.awt.event.KeyEvent;
-
 /**
  * Defines actions for client input while TetrisGame game is in the GameModeState
  * @author ewillis
@@ -10,7 +8,11 @@ import java.awt.event.KeyEvent;
 public class GameModeState implements State
 {
 
-    long rate, lastAction, newAction;
+    // The piece gravity is acting on, and how many ticks it has been falling
+    // since it last moved down or resting on the stack.
+    private Tetrimino fallingPiece;
+    private int gravityTicks, lockTicks;
+
     /**
      * Default constructor that creates a new active piece for the client
      * when the game starts
@@ -18,88 +20,65 @@ public class GameModeState implements State
      */
     public GameModeState( TetrisGame game )
     {
-        rate = 50;
-        lastAction = System.currentTimeMillis();
         game.createNewPiece();
-        game.notifyObs();
     }
     /**
      * Responds to input from a client. 
-     * Certain inputs are rate limited.
-     * Times of a previous rate limited action are recorded
-     * and subsequent actions are ignored if they occur within a certain
-     * timeframe.
-     * 
-     * The KeyEvent event has associated with it a keycode that corresponds
-     * to the different keys on a standard keyboard. 
-     * GameModeState responds to the keys Escape, Enter, Left Arrow, Right Arrow,
-     * Down Arrow, Spacebar, Up Arrow, Right Ctrl, and a keycode of 242 that is 
-     * used to represent a dialog acknowledgement.
+     * Once the game is over only LOSS_ACKNOWLEDGED is responded to.
      * 
-     * KeyName: Escape
-     * KeyCode: 27
-     * Action : The Program will exit.
+     * GameModeState responds to the actions LEFT, RIGHT, SOFT_DROP, HARD_DROP,
+     * ROTATE_CW, ROTATE_CCW and LOSS_ACKNOWLEDGED.
      * 
-     * KeyName: Left Arrow
-     * KeyCode: 37
-     * Action: The active piece for the client (block piece) will be transformed 
-     * to the left by 1 block ( if legal ) for each unit of a predetermined 
-     * amount of time. 
+     * Action: LEFT
+     * The active piece for the client (block piece) will be transformed 
+     * to the left by 1 block ( if legal ).
      * 
-     * KeyName: Right Arrow
-     * KeyCode: 39
-     * Action:  The active piece for the client will be transformed to the right 
-     * by 1 block. ( if legal ) for each
+     * Action: RIGHT
+     * The active piece for the client will be transformed to the right 
+     * by 1 block ( if legal ).
      * 
-     * KeyName: Down Arrow
-     * KeyCode: 40
-     * Action:  The active piece for the client will be transformed to the right 
-     * by 1 block. ( if legal ) for each
+     * Action: SOFT_DROP
+     * The active piece for the client will be transformed down by 1 block
+     * ( if legal ), otherwise it is locked into place.
      * 
-     * KeyName: Spacebar
-     * KeyCode: 32
-     * Action: The active piece falls to its final position and locks into place.
+     * Action: HARD_DROP
+     * The active piece falls to its final position and locks into place.
      * 
-     * KeyName: Up Arrow
-     * KeyCode: 38
-     * Action: The active piece is rotated clockwise by 90 degrees.
+     * Action: ROTATE_CW
+     * The active piece is rotated clockwise by 90 degrees.
      * 
-     * KeyName: Right Ctrl
-     * KeyCode: 17
-     * Action: The active piece is rotated counter clockwise by 90 degrees.
+     * Action: ROTATE_CCW
+     * The active piece is rotated counter clockwise by 90 degrees.
      * 
-     * KeyName: Dialog Ack
-     * KeyCode: 242
-     * Action: The program has displayed a dialog informing the client they have 
-     * lost in Game Mode and the client has acknowledged it. The game will then
-     * revert to a WaitingState from the GameModeState.
+     * Action: LOSS_ACKNOWLEDGED
+     * The client has been informed they have lost in Game Mode and has
+     * acknowledged it. The game will then revert to a WaitingState from the
+     * GameModeState. It is ignored while the game is not over.
      * 
-     * @param event The KeyEvent that the client performed
+     * @param action The action that the client performed
      * @param game The TetrisGame that will possibly be modified
      * depending on client input
-     * @param pressedOrReleased 
-     * 
-     * 
      */
-    public void respond(KeyEvent event, TetrisGame game, boolean pressedOrReleased)
+    public void respond(GameAction action, TetrisGame game)
     {
-        newAction = System.currentTimeMillis();
-        if( (newAction - lastAction) > rate)
+        if( game.isGameOver() )
         {
-            int keyCode = event.getKeyCode();
-            if(keyCode == 27) //escape key was pressed by client
+            if( action == GameAction.LOSS_ACKNOWLEDGED )
             {
-                System.exit(1);
+                game.setState(new WaitingState( game ));
             }
-            else if( keyCode == 37 ) // left arrow was pressed by client
+        }
+        else
+        {
+            if( action == GameAction.LEFT )
             {
                 game.translate( -1, 0 );
             }
-            else if( keyCode == 39 ) // right arrow was pressed by client
+            else if( action == GameAction.RIGHT )
             {
                 game.translate( 1, 0 );
             }
-            else if( keyCode == 40 ) // down arrow was pressed by client
+            else if( action == GameAction.SOFT_DROP )
             {
                 //check if the piece can move down farther
                if( !game.translate( 0, 1 ) )
@@ -108,30 +87,66 @@ public class GameModeState implements State
                    game.lockActivePiece();
                }
             }
-            else if( keyCode == 32 ) // space bar was pressed by client
+            else if( action == GameAction.HARD_DROP )
             {
                 game.hardTranslate();
             }
-            else if( keyCode == 38 ) // Up arrow was pressed by client
+            else if( action == GameAction.ROTATE_CW )
             {
                 boolean cwRot = true;
                 game.transform( cwRot );
             }
-            else if( keyCode == 17 ) // Right ctrl was pressed by client
+            else if( action == GameAction.ROTATE_CCW )
             {
                 boolean cwRot = false;
                 game.transform( cwRot );
             }
-            else if( keyCode == 242 ) // Loss dialog was acknowledged by client.
+            else
             {
-                game.setState(new WaitingState());
+                // ignore extraneous input
+            }
+        }
+    }
+
+    /**
+     * Applies gravity to the active piece. The piece falls 1 block each time
+     * the number of ticks for the current level has passed. Once it rests on
+     * the stack it is locked after the lock delay, unless it was moved so
+     * that it can fall again.
+     * @param game The TetrisGame that is advanced.
+     */
+    public void tick(TetrisGame game)
+    {
+        if( !game.isGameOver() )
+        {
+            Gravity gravity = game.getGravity();
+            // A new piece starts falling from scratch.
+            if( game.getActivePiece() != fallingPiece )
+            {
+                fallingPiece = game.getActivePiece();
+                gravityTicks = 0;
+                lockTicks = 0;
+            }
+            if( game.isActivePieceResting() )
+            {
+                gravityTicks = 0;
+                lockTicks++;
+                if( lockTicks >= gravity.getLockDelay() )
+                {
+                    game.lockActivePiece();
+                }
             }
             else
             {
-                // ignore extraneous input
+                lockTicks = 0;
+                gravityTicks++;
+                if( gravityTicks >= gravity.getTicksPerRow( game.getLevel() ) )
+                {
+                    gravityTicks = 0;
+                    game.translate( 0, 1 );
+                }
             }
         }
-        lastAction = newAction;
     }
     
 }
@@ -0,0 +1,148 @@
+package Observables;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue of garbage sent to a game by its opponent,
+ * from a single producer thread (the opponent's game thread, or the thread
+ * reading from the opponent's connection) to the thread running the game.
+ *
+ * It works like the InputQueue: a ring of preallocated slots that the
+ * producer publishes by advancing its write position and the consumer
+ * frees by advancing its read position, so neither side ever blocks. The
+ * game drains its mailbox at the start of every tick.
+ *
+ * Each entry holds the number of garbage rows and the column of their hole.
+ */
+public class GarbageMailbox
+{
+    public static final int DEFAULT_CAPACITY = 64;
+    /** What poll returns when the mailbox is empty. */
+    public static final int EMPTY = -1;
+
+    //Attributes
+    private final int mask;
+    private final int[] entries;
+    // The next slot the consumer reads, and the next slot the producer writes.
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    // Only written by the producer.
+    private volatile long dropped;
+
+    /**
+     * Creates a mailbox with the default capacity.
+     */
+    public GarbageMailbox()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Creates a mailbox.
+     * @param capacity the most entries the mailbox holds, rounded up to a power of 2.
+     */
+    public GarbageMailbox( int capacity )
+    {
+        int size = Integer.highestOneBit( Math.max( 1, capacity - 1 ) ) << 1;
+        mask = size - 1;
+        entries = new int[ size ];
+    }
+
+    /**
+     * Adds garbage to the mailbox. May only be called from the producer thread.
+     * @param lines the number of garbage rows, 1 to 255.
+     * @param hole the column of the empty cell of each row.
+     * @return true if the garbage was added, false if the mailbox was full
+     * and the garbage was dropped.
+     */
+    public boolean offer( int lines, int hole )
+    {
+        boolean answer = false;
+        long t = tail.get();
+        if( t - head.get() <= mask )
+        {
+            entries[ (int)t & mask ] = ( hole << 8 ) | ( lines & 0xFF );
+            // Publishes the slot to the consumer.
+            tail.lazySet( t + 1 );
+            answer = true;
+        }
+        else
+        {
+            dropped++;
+        }
+        return answer;
+    }
+
+    /**
+     * Takes the oldest entry. May only be called from the consumer thread.
+     * @return the entry, to be read with linesOf and holeOf, or EMPTY.
+     */
+    public int poll()
+    {
+        int answer = EMPTY;
+        long h = head.get();
+        if( h < tail.get() )
+        {
+            answer = entries[ (int)h & mask ];
+            // Frees the slot for the producer.
+            head.lazySet( h + 1 );
+        }
+        return answer;
+    }
+
+    /**
+     * Pushes every entry in the mailbox into the given game, oldest first.
+     * May only be called from the consumer thread.
+     * @param game the game that receives the garbage.
+     * @return the number of entries drained.
+     */
+    public int drainTo( TetrisGame game )
+    {
+        long h = head.get();
+        long t = tail.get();
+        for( long i = h; i < t; i++ )
+        {
+            int entry = entries[ (int)i & mask ];
+            game.receiveGarbage( linesOf( entry ), holeOf( entry ) );
+        }
+        head.lazySet( t );
+        return (int)( t - h );
+    }
+
+    /**
+     * Gets the number of rows of an entry.
+     * @param entry an entry taken with poll.
+     * @return the number of garbage rows.
+     */
+    public static int linesOf( int entry )
+    {
+        return entry & 0xFF;
+    }
+
+    /**
+     * Gets the hole of an entry.
+     * @param entry an entry taken with poll.
+     * @return the column of the empty cell of each row.
+     */
+    public static int holeOf( int entry )
+    {
+        return entry >>> 8;
+    }
+
+    /**
+     *
+     * @return Returns the number of entries waiting in the mailbox.
+     */
+    public int size()
+    {
+        return (int)( tail.get() - head.get() );
+    }
+
+    /**
+     *
+     * @return Returns the number of entries dropped because the mailbox was full.
+     */
+    public long getDroppedCount()
+    {
+        return dropped;
+    }
+}
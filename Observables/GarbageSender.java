@@ -0,0 +1,96 @@
+package Observables;
+
+import java.util.SplittableRandom;
+
+/**
+ * Sends garbage to an opponent whenever the game it listens to clears
+ * lines: one row for a double, two for a triple and four for a tetris. The
+ * rows of a batch share a hole in a column picked at random.
+ *
+ * The sender runs on its game's thread and only ever offers to the
+ * opponent's GarbageMailbox, so neither game waits on the other. Each
+ * mailbox may only have one sender.
+ */
+public class GarbageSender implements GameListener
+{
+    private static final int[] GARBAGE_FOR_LINES = { 0, 0, 1, 2, 4 };
+
+    //Attributes
+    private final GarbageMailbox opponent;
+    private final SplittableRandom holes;
+    private long linesSent;
+
+    /**
+     * Creates a sender.
+     * @param opponent the mailbox of the opposing game.
+     * @param seed the seed the holes are picked with.
+     */
+    public GarbageSender( GarbageMailbox opponent, long seed )
+    {
+        this.opponent = opponent;
+        this.holes = new SplittableRandom( seed );
+    }
+
+    /**
+     * Pits two games on this JVM against each other. Must be called before
+     * either game runs, as it attaches a listener to each.
+     * @param a one game.
+     * @param b the other game.
+     * @param seed the seed the holes are picked with.
+     */
+    public static void link( TetrisGame a, TetrisGame b, long seed )
+    {
+        a.attach( new GarbageSender( b.getGarbageMailbox(), seed ) );
+        b.attach( new GarbageSender( a.getGarbageMailbox(), ~seed ) );
+    }
+
+    /**
+     * Works out how many garbage rows a line clear sends.
+     * @param lines the number of lines cleared at once.
+     * @return the number of garbage rows.
+     */
+    public static int garbageFor( int lines )
+    {
+        return GARBAGE_FOR_LINES[ Math.min( lines, GARBAGE_FOR_LINES.length - 1 ) ];
+    }
+
+    /**
+     * Offers the garbage for the cleared lines to the opponent.
+     * @param game the game the lines were cleared in.
+     * @param rows the y coordinates the lines had.
+     */
+    @Override
+    public void linesCleared( TetrisGame game, int[] rows )
+    {
+        int lines = garbageFor( rows.length );
+        if( lines > 0 && opponent.offer( lines, holes.nextInt( game.getWidth() ) ) )
+        {
+            linesSent += lines;
+        }
+    }
+
+    /**
+     * Garbage is only sent for cleared lines.
+     * @param game the game that changed.
+     */
+    public void gameUpdated( TetrisGame game )
+    {
+    }
+
+    /**
+     * Nothing is sent once the game is lost.
+     * @param game the game that was lost.
+     */
+    public void gameLost( TetrisGame game )
+    {
+    }
+
+    /**
+     *
+     * @return Returns the number of garbage rows sent.
+     */
+    public long getLinesSent()
+    {
+        return linesSent;
+    }
+}
@@ -0,0 +1,58 @@
+package Observables;
+
+/**
+ * Defines how fast pieces fall on their own. Gravity is counted in game
+ * ticks: at every level a piece falls 1 block each time a number of ticks
+ * has passed, and a piece that rests on the stack is locked once it has
+ * rested for the lock delay.
+ */
+public class Gravity
+{
+    /**
+     * The default gravity for a game running at 60 ticks per second. Pieces
+     * start out falling 1 block every 48 ticks and reach 1 block per tick at
+     * level 29, they lock after resting for half a second.
+     */
+    public static final Gravity DEFAULT = new Gravity( new int[]
+    {
+        48, 43, 38, 33, 28, 23, 18, 13, 8, 6,
+        5, 5, 5, 4, 4, 4, 3, 3, 3, 2,
+        2, 2, 2, 2, 2, 2, 2, 2, 2, 1
+    }, 30 );
+
+    //Attributes
+    private int[] ticksPerRow;
+    private int lockDelay;
+
+    /**
+     * Creates a gravity with the given speeds.
+     * @param ticksPerRow the number of ticks it takes a piece to fall 1 block,
+     * indexed by level. Levels past the end of the array use the last entry.
+     * @param lockDelay the number of ticks a piece may rest on the stack
+     * before it is locked.
+     */
+    public Gravity( int[] ticksPerRow, int lockDelay )
+    {
+        this.ticksPerRow = ticksPerRow.clone();
+        this.lockDelay = lockDelay;
+    }
+
+    /**
+     * Gets the number of ticks it takes a piece to fall 1 block.
+     * @param level the current level of the game.
+     * @return the ticks per row at the given level.
+     */
+    public int getTicksPerRow( int level )
+    {
+        return ticksPerRow[ Math.min( level, ticksPerRow.length - 1 ) ];
+    }
+
+    /**
+     *
+     * @return Returns the number of ticks a piece may rest before it is locked.
+     */
+    public int getLockDelay()
+    {
+        return lockDelay;
+    }
+}
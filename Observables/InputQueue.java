@@ -0,0 +1,178 @@
+package Observables;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue of timestamped actions from a single producer
+ * thread (such as the Swing event dispatch thread) to a single consumer
+ * thread (the thread running the GameLoop).
+ *
+ * The queue is a ring of preallocated slots. The producer only writes the
+ * slots between the consumer's read position and its own write position, and
+ * publishes them by advancing the write position. The consumer drains every
+ * published action in one batch and then frees the slots by advancing the
+ * read position. Neither side ever blocks.
+ *
+ * The time an action waited in the queue is recorded so that the latency
+ * from input to simulation can be measured.
+ */
+public class InputQueue
+{
+    public static final int DEFAULT_CAPACITY = 256;
+    private static final GameAction[] ACTIONS = GameAction.values();
+
+    //Attributes
+    private final int mask;
+    private final byte[] actions;
+    private final long[] timestamps;
+    // The next slot the consumer reads, and the next slot the producer writes.
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    // Latency metrics, only written by the consumer.
+    private volatile long drained, lastLatencyNanos, maxLatencyNanos, totalLatencyNanos;
+    // Only written by the producer.
+    private volatile long dropped;
+
+    /**
+     * Creates a queue with the default capacity.
+     */
+    public InputQueue()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+    /**
+     * Creates a queue.
+     * @param capacity the most actions the queue holds, rounded up to a power of 2.
+     */
+    public InputQueue( int capacity )
+    {
+        int size = Integer.highestOneBit( Math.max( 1, capacity - 1 ) ) << 1;
+        mask = size - 1;
+        actions = new byte[ size ];
+        timestamps = new long[ size ];
+    }
+
+    /**
+     * Adds an action to the queue, stamped with the current System.nanoTime.
+     * May only be called from the producer thread.
+     * @param action the action to add.
+     * @return true if the action was added, false if the queue was full and
+     * the action was dropped.
+     */
+    public boolean offer( GameAction action )
+    {
+        return offer( action, System.nanoTime() );
+    }
+
+    /**
+     * Adds an action to the queue. May only be called from the producer thread.
+     * @param action the action to add.
+     * @param timestamp the System.nanoTime at which the action happened.
+     * @return true if the action was added, false if the queue was full and
+     * the action was dropped.
+     */
+    public boolean offer( GameAction action, long timestamp )
+    {
+        boolean answer = false;
+        long t = tail.get();
+        if( t - head.get() <= mask )
+        {
+            int slot = (int)t & mask;
+            actions[ slot ] = (byte)action.ordinal();
+            timestamps[ slot ] = timestamp;
+            // Publishes the slot to the consumer.
+            tail.lazySet( t + 1 );
+            answer = true;
+        }
+        else
+        {
+            dropped++;
+        }
+        return answer;
+    }
+
+    /**
+     * Performs every action in the queue on the given game, oldest first.
+     * May only be called from the consumer thread.
+     * @param game the game to perform the actions on.
+     * @return the number of actions performed.
+     */
+    public int drainTo( TetrisGame game )
+    {
+        long h = head.get();
+        long t = tail.get();
+        long now = System.nanoTime();
+        for( long i = h; i < t; i++ )
+        {
+            int slot = (int)i & mask;
+            long latency = now - timestamps[ slot ];
+            lastLatencyNanos = latency;
+            totalLatencyNanos += latency;
+            if( latency > maxLatencyNanos )
+            {
+                maxLatencyNanos = latency;
+            }
+            game.getMetrics().recordInput( latency );
+            game.respond( ACTIONS[ actions[ slot ] ] );
+        }
+        // Frees the slots for the producer.
+        head.lazySet( t );
+        drained += t - h;
+        return (int)( t - h );
+    }
+
+    /**
+     *
+     * @return Returns the number of actions waiting in the queue.
+     */
+    public int size()
+    {
+        return (int)( tail.get() - head.get() );
+    }
+
+    /**
+     *
+     * @return Returns the number of actions that have been drained from the queue.
+     */
+    public long getDrainedCount()
+    {
+        return drained;
+    }
+
+    /**
+     *
+     * @return Returns the number of actions dropped because the queue was full.
+     */
+    public long getDroppedCount()
+    {
+        return dropped;
+    }
+
+    /**
+     *
+     * @return Returns how long the last drained action waited in the queue in nanoseconds.
+     */
+    public long getLastLatencyNanos()
+    {
+        return lastLatencyNanos;
+    }
+
+    /**
+     *
+     * @return Returns the longest an action waited in the queue in nanoseconds.
+     */
+    public long getMaxLatencyNanos()
+    {
+        return maxLatencyNanos;
+    }
+
+    /**
+     *
+     * @return Returns how long an action waited in the queue on average in nanoseconds.
+     */
+    public long getAverageLatencyNanos()
+    {
+        long count = drained;
+        return count == 0 ? 0 : totalLatencyNanos / count;
+    }
+}
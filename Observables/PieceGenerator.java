@@ -0,0 +1,26 @@
+package Observables;
+
+/**
+ * A source of the piece types a game spawns. Generators are seeded, so the
+ * same seed always gives the same pieces, and can be split into a new
+ * generator whose pieces are independent of this one's. Splitting gives
+ * each of many games played in parallel a stream of its own that is still
+ * reproducible from the first seed.
+ *
+ * A generator is not thread safe, it belongs to the thread advancing its game.
+ */
+public interface PieceGenerator
+{
+    /**
+     * Draws the next piece.
+     * @return the type of the piece from 0-6.
+     */
+    int next();
+
+    /**
+     * Creates a generator of the same kind whose pieces are independent of
+     * the pieces of this generator. This generator moves on as well.
+     * @return the new generator.
+     */
+    PieceGenerator split();
+}
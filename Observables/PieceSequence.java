@@ -0,0 +1,22 @@
+package Observables;
+
+/**
+ * The kinds of piece sequences a game can be played with.
+ */
+public enum PieceSequence
+{
+    /** Each piece drawn on its own, see UniformGenerator. */
+    UNIFORM,
+    /** Pieces dealt from shuffled bags of all 7 types, see BagGenerator. */
+    BAG;
+
+    /**
+     * Creates a generator of this kind.
+     * @param seed the seed of the generator.
+     * @return the new generator.
+     */
+    public PieceGenerator create( long seed )
+    {
+        return this == BAG ? new BagGenerator( seed ) : new UniformGenerator( seed );
+    }
+}
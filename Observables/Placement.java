@@ -0,0 +1,81 @@
+package Observables;
+
+/**
+ * A place where a piece can land: the rotation and the column of the piece's
+ * origin, together with the row it comes to rest at and how good the
+ * resulting board is.
+ */
+public class Placement
+{
+    //Attributes
+    private final int rotation, x, y;
+    private final int linesCleared;
+    private final double score;
+
+    /**
+     * Creates a placement.
+     * @param rotation the rotation of the piece from 0-3.
+     * @param x the x coordinate of the piece's origin.
+     * @param y the y coordinate the piece's origin comes to rest at.
+     * @param linesCleared the number of lines the placement clears.
+     * @param score how good the resulting board is, higher is better.
+     */
+    public Placement( int rotation, int x, int y, int linesCleared, double score )
+    {
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+        this.linesCleared = linesCleared;
+        this.score = score;
+    }
+
+    /**
+     *
+     * @return Returns the rotation of the piece from 0-3.
+     */
+    public int getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+     *
+     * @return Returns the x coordinate of the piece's origin.
+     */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+     *
+     * @return Returns the y coordinate the piece's origin comes to rest at.
+     */
+    public int getY()
+    {
+        return y;
+    }
+
+    /**
+     *
+     * @return Returns the number of lines the placement clears.
+     */
+    public int getLinesCleared()
+    {
+        return linesCleared;
+    }
+
+    /**
+     *
+     * @return Returns how good the resulting board is, higher is better.
+     */
+    public double getScore()
+    {
+        return score;
+    }
+
+    public String toString()
+    {
+        return "( rot "+rotation+", x "+x+", y "+y+", lines "+linesCleared+", score "+score+" )";
+    }
+}
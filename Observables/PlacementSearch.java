@@ -0,0 +1,366 @@
+package Observables;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the best place to drop a piece. Every rotation of the piece is tried
+ * in every column, the piece is dropped straight down from the top of the
+ * board, and the board that results after clearing lines is scored with a
+ * weighted sum of its aggregate height, lines cleared, holes and bumpiness.
+ *
+ * Boards are given as one bitmask per row, where bit x of board[ y ] is set
+ * when the cell (x, y) is occupied. The candidates are scored in parallel on
+ * a ForkJoinPool, a chunk of candidates per task.
+ *
+ * Given a TranspositionTable, scores are cached by the Zobrist hash of the
+ * resulting board, so boards reached again through other moves, by other
+ * threads or in later searches are not scored twice.
+ */
+public class PlacementSearch
+{
+    /** Weights that play well on a standard board. */
+    public static final double DEFAULT_HEIGHT_WEIGHT = -0.510066,
+                               DEFAULT_LINES_WEIGHT = 0.760666,
+                               DEFAULT_HOLES_WEIGHT = -0.35663,
+                               DEFAULT_BUMPINESS_WEIGHT = -0.184483;
+    public static final int DEFAULT_CHUNK_SIZE = 8;
+
+    //Attributes
+    private final double heightWeight, linesWeight, holesWeight, bumpinessWeight;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private volatile TranspositionTable table;
+    private volatile Zobrist zobrist;
+
+    /**
+     * Creates a search with the default weights that runs on the common pool.
+     */
+    public PlacementSearch()
+    {
+        this( DEFAULT_HEIGHT_WEIGHT, DEFAULT_LINES_WEIGHT, DEFAULT_HOLES_WEIGHT, DEFAULT_BUMPINESS_WEIGHT,
+              ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE );
+    }
+
+    /**
+     * Creates a search.
+     * @param heightWeight the weight of the sum of the column heights.
+     * @param linesWeight the weight of the number of lines cleared.
+     * @param holesWeight the weight of the number of empty cells below the top of their column.
+     * @param bumpinessWeight the weight of the sum of the height differences of neighbouring columns.
+     * @param pool the pool the candidates are scored on, or null to score them on the calling thread.
+     * @param chunkSize the most candidates a single task scores.
+     */
+    public PlacementSearch( double heightWeight, double linesWeight, double holesWeight, double bumpinessWeight,
+                            ForkJoinPool pool, int chunkSize )
+    {
+        this.heightWeight = heightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+        this.pool = pool;
+        this.chunkSize = Math.max( 1, chunkSize );
+    }
+
+    /**
+     * Sets the table scores are cached in.
+     * @param table the table, or null to score every board.
+     */
+    public void setTranspositionTable( TranspositionTable table )
+    {
+        this.table = table;
+    }
+
+    /**
+     *
+     * @return Returns the table scores are cached in, or null if there is none.
+     */
+    public TranspositionTable getTranspositionTable()
+    {
+        return table;
+    }
+
+    /**
+     * Finds the best placement of a piece.
+     * @param board the row masks of the board without the piece. Not modified.
+     * @param boardWidth the width of the board.
+     * @param pieceType the type of piece from 0-6.
+     * @return the best placement, or null if the piece fits nowhere.
+     */
+    public Placement findBest( int[] board, int boardWidth, int pieceType )
+    {
+        // Every rotation in every column is a candidate, numbered rotation * boardWidth + x.
+        int candidates = 4 * boardWidth;
+        long boardHash = 0;
+        if( table != null )
+        {
+            boardHash = getZobrist( boardWidth, board.length ).boardHash( board );
+        }
+        Search task = new Search( board, boardHash, boardWidth, pieceType, 0, candidates );
+        Placement answer;
+        if( pool == null )
+        {
+            answer = task.compute();
+        }
+        else
+        {
+            answer = pool.invoke( task );
+        }
+        return answer;
+    }
+
+    /**
+     * Gets the Zobrist keys for a board size, creating them when the size changes.
+     */
+    private Zobrist getZobrist( int boardWidth, int boardHeight )
+    {
+        Zobrist keys = zobrist;
+        if( keys == null || keys.getWidth() != boardWidth || keys.getHeight() != boardHeight )
+        {
+            keys = new Zobrist( boardWidth, boardHeight );
+            zobrist = keys;
+        }
+        return keys;
+    }
+
+    /**
+     * Drops a piece straight down from the top of the board.
+     * @param board the row masks of the board.
+     * @param pieceType the type of piece from 0-6.
+     * @param rotation the rotation from 0-3.
+     * @param x the x coordinate of the piece's origin.
+     * @return the y coordinate the piece's origin comes to rest at, or -1 if
+     * the piece does not fit at the top of the board.
+     */
+    public static int dropRow( int[] board, int pieceType, int rotation, int x )
+    {
+        int maxY = Tetrimino.getMaxY( pieceType, rotation );
+        int y = -1;
+        while( y + 1 + maxY < board.length && fits( board, pieceType, rotation, x, y + 1 ) )
+        {
+            y++;
+        }
+        return y;
+    }
+
+    /**
+     * Checks whether a piece overlaps no blocks on the board. The piece is
+     * assumed to be within the bounds of the board.
+     */
+    private static boolean fits( int[] board, int pieceType, int rotation, int x, int y )
+    {
+        boolean answer = true;
+        for( int r = 0; r < 4 && answer; r++ )
+        {
+            int mask = Tetrimino.getRowMask( pieceType, rotation, r );
+            if( mask != 0 && ( board[ y + r ] & ( mask << x ) ) != 0 )
+            {
+                answer = false;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Scores a single candidate.
+     * @param boardHash the Zobrist hash of the board, only used with a table.
+     * @param rows scratch space as long as the board, overwritten.
+     * @param heights scratch space as long as the board is wide, overwritten.
+     * @return the placement, or null if the candidate is not possible.
+     */
+    private Placement evaluate( int[] board, long boardHash, int boardWidth, int pieceType, int rotation, int x,
+                                int[] rows, int[] heights )
+    {
+        TranspositionTable cache = table;
+        Placement answer = null;
+        int boardHeight = board.length;
+        int y = -1;
+        if( x + Tetrimino.getMaxX( pieceType, rotation ) < boardWidth )
+        {
+            y = dropRow( board, pieceType, rotation, x );
+        }
+        if( y >= 0 )
+        {
+            System.arraycopy( board, 0, rows, 0, boardHeight );
+            for( int r = 0; r < 4; r++ )
+            {
+                int mask = Tetrimino.getRowMask( pieceType, rotation, r );
+                if( mask != 0 )
+                {
+                    rows[ y + r ] |= mask << x;
+                }
+            }
+            int lines = clearLines( rows, ( 1 << boardWidth ) - 1 );
+            double score;
+            if( cache == null )
+            {
+                score = score( rows, boardWidth, lines, heights );
+            }
+            else
+            {
+                long key = resultHash( boardHash, boardWidth, rows, pieceType, rotation, x, y, lines );
+                score = cache.probe( key, 0 );
+                if( Double.isNaN( score ) )
+                {
+                    score = score( rows, boardWidth, lines, heights );
+                    cache.store( key, 0, score );
+                }
+            }
+            answer = new Placement( rotation, x, y, lines, score );
+        }
+        return answer;
+    }
+
+    /**
+     * Hashes the board that results from a placement. Without line clears
+     * only the cells of the piece are added to the hash of the board, after
+     * line clears the rows have moved and the board is hashed again.
+     */
+    private long resultHash( long boardHash, int boardWidth, int[] rows, int pieceType, int rotation, int x, int y,
+                             int lines )
+    {
+        Zobrist keys = getZobrist( boardWidth, rows.length );
+        long answer;
+        if( lines == 0 )
+        {
+            answer = boardHash;
+            for( int r = 0; r < 4; r++ )
+            {
+                answer ^= keys.rowHash( Tetrimino.getRowMask( pieceType, rotation, r ) << x, y + r );
+            }
+        }
+        else
+        {
+            answer = keys.boardHash( rows );
+        }
+        return answer ^ keys.linesKey( lines );
+    }
+
+    /**
+     * Removes the full rows and moves the rows above them down in one pass.
+     * @param rows the row masks of the board, compacted in place.
+     * @param fullRow the mask of a full row.
+     * @return the number of rows removed.
+     */
+    static int clearLines( int[] rows, int fullRow )
+    {
+        int write = rows.length - 1;
+        for( int read = rows.length - 1; read >= 0; read-- )
+        {
+            if( rows[ read ] != fullRow )
+            {
+                rows[ write ] = rows[ read ];
+                write--;
+            }
+        }
+        int lines = write + 1;
+        for( ; write >= 0; write-- )
+        {
+            rows[ write ] = 0;
+        }
+        return lines;
+    }
+
+    /**
+     * Scores a board after the lines were cleared.
+     */
+    private double score( int[] rows, int boardWidth, int lines, int[] heights )
+    {
+        int boardHeight = rows.length;
+        int holes = 0;
+        int seen = 0;
+        for( int x = 0; x < boardWidth; x++ )
+        {
+            heights[ x ] = 0;
+        }
+        // Walk down from the top. A column's height is set by its first block,
+        // and every empty cell below a block seen earlier is a hole.
+        for( int y = 0; y < boardHeight; y++ )
+        {
+            int row = rows[ y ];
+            int newColumns = row & ~seen;
+            while( newColumns != 0 )
+            {
+                int x = Integer.numberOfTrailingZeros( newColumns );
+                heights[ x ] = boardHeight - y;
+                newColumns &= newColumns - 1;
+            }
+            holes += Integer.bitCount( seen & ~row );
+            seen |= row;
+        }
+        int aggregateHeight = 0, bumpiness = 0;
+        for( int x = 0; x < boardWidth; x++ )
+        {
+            aggregateHeight += heights[ x ];
+            if( x > 0 )
+            {
+                bumpiness += Math.abs( heights[ x ] - heights[ x - 1 ] );
+            }
+        }
+        return ( heightWeight * aggregateHeight ) + ( linesWeight * lines )
+             + ( holesWeight * holes ) + ( bumpinessWeight * bumpiness );
+    }
+
+    /**
+     * Picks the better of two placements. Ties go to the first one so that
+     * the result does not depend on how the work was split.
+     */
+    private static Placement better( Placement first, Placement second )
+    {
+        Placement answer = first;
+        if( first == null || ( second != null && second.getScore() > first.getScore() ) )
+        {
+            answer = second;
+        }
+        return answer;
+    }
+
+    /**
+     * Scores a range of candidates, splitting it in half until it is no
+     * bigger than the chunk size.
+     */
+    private class Search extends RecursiveTask<Placement>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] board;
+        private final long boardHash;
+        private final int boardWidth, pieceType, from, to;
+
+        Search( int[] board, long boardHash, int boardWidth, int pieceType, int from, int to )
+        {
+            this.board = board;
+            this.boardHash = boardHash;
+            this.boardWidth = boardWidth;
+            this.pieceType = pieceType;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Placement compute()
+        {
+            Placement answer = null;
+            if( to - from <= chunkSize || pool == null )
+            {
+                int[] rows = new int[ board.length ];
+                int[] heights = new int[ boardWidth ];
+                for( int candidate = from; candidate < to; candidate++ )
+                {
+                    answer = better( answer, evaluate( board, boardHash, boardWidth, pieceType,
+                                     candidate / boardWidth, candidate % boardWidth, rows, heights ) );
+                }
+            }
+            else
+            {
+                int middle = ( from + to ) >>> 1;
+                Search left = new Search( board, boardHash, boardWidth, pieceType, from, middle );
+                Search right = new Search( board, boardHash, boardWidth, pieceType, middle, to );
+                left.fork();
+                Placement rightBest = right.compute();
+                answer = better( left.join(), rightBest );
+            }
+            return answer;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package Observables;
+
+import java.util.Arrays;
+
+/**
+ * The cells of a tetris board, stored row by row. Besides the cells the
+ * playfield keeps the occupancy of each row as a bitmask and the Zobrist
+ * hash of every occupied cell up to date.
+ *
+ * The playfield is persistent: snapshot takes an unchangeable copy in
+ * constant time by sharing the rows, and the playfield only copies what it
+ * changes afterwards. The first change after a snapshot copies the array of
+ * rows, and each row is copied the first time one of its cells changes, so
+ * a move costs time in the rows it touches. A playfield can also continue
+ * from any snapshot, which lets a search try many moves on the same board.
+ *
+ * A playfield is the live BoardView of its board. Only this package may
+ * change it, so code elsewhere given the view can read the board but not
+ * write it behind the game's back. It is not thread safe, its snapshots are.
+ */
+public class Playfield implements BoardView
+{
+    /** The value of a cell without a block. Other cells hold the type of their piece plus 1. */
+    public static final byte EMPTY = 0;
+    /** The value of a cell of a garbage row sent by an opponent. */
+    public static final byte GARBAGE = 8;
+    /** The widest board, as every row is kept as the bits of an int. */
+    public static final int MAX_WIDTH = 31;
+    private static final int[] NO_ROWS = new int[ 0 ];
+
+    //Attributes
+    private final int width, height, fullRowMask;
+    private final Zobrist zobrist;
+    private final byte[] emptyRow;
+    private byte[][] rows;
+    private int[] masks;
+    private long hash;
+    // Counts the changes, see BoardView.getVersion.
+    private long version;
+    // A row may only be written when it was copied in the current generation,
+    // which starts anew with every snapshot. Rows not copied yet, such as the
+    // shared empty row, have generation 0.
+    private final int[] rowGenerations;
+    private int generation = 1;
+    // Scratch space for the rows found full by clearFullRows.
+    private final int[] fullRows;
+    // Whether the latest snapshot refers to the arrays of rows and masks.
+    private boolean shared;
+    private BoardSnapshot snapshot;
+
+    /**
+     * Creates an empty playfield.
+     * @param width the width of the board, at most MAX_WIDTH cells.
+     * @param height the height of the board.
+     * @param zobrist the keys to hash the cells with.
+     * @throws IllegalArgumentException if the board is empty or wider than MAX_WIDTH.
+     */
+    public Playfield( int width, int height, Zobrist zobrist )
+    {
+        checkSize( width, height );
+        this.width = width;
+        this.height = height;
+        this.fullRowMask = ( 1 << width ) - 1;
+        this.zobrist = zobrist;
+        this.emptyRow = new byte[ width ];
+        this.rowGenerations = new int[ height ];
+        this.fullRows = new int[ height ];
+        clear();
+    }
+
+    /**
+     * Checks that a board of the given size can be kept in a playfield.
+     * @param width the width of the board.
+     * @param height the height of the board.
+     * @throws IllegalArgumentException if the board is empty or wider than MAX_WIDTH.
+     */
+    static void checkSize( int width, int height )
+    {
+        if( width < 1 || width > MAX_WIDTH || height < 1 )
+        {
+            throw new IllegalArgumentException( "Boards must be 1 to " + MAX_WIDTH + " cells wide and at least 1 high, not "
+                                              + width + " by " + height );
+        }
+    }
+
+    /**
+     * Creates a playfield that continues from a snapshot. The snapshot is
+     * not changed.
+     * @param snapshot the board to start from.
+     */
+    public Playfield( BoardSnapshot snapshot )
+    {
+        this.width = snapshot.getWidth();
+        this.height = snapshot.getHeight();
+        this.fullRowMask = ( 1 << width ) - 1;
+        this.zobrist = snapshot.getZobrist();
+        this.emptyRow = new byte[ width ];
+        this.rowGenerations = new int[ height ];
+        this.fullRows = new int[ height ];
+        this.rows = snapshot.getRows();
+        this.masks = snapshot.getMasks();
+        this.hash = snapshot.getHash();
+        this.version = snapshot.getVersion();
+        this.shared = true;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Takes an unchangeable copy of the board. Taking a snapshot is constant
+     * time, and taking another one before the board changed returns the same
+     * snapshot.
+     * @return the snapshot.
+     */
+    public BoardSnapshot snapshot()
+    {
+        if( snapshot == null )
+        {
+            snapshot = new BoardSnapshot( width, height, rows, masks, hash, version, zobrist );
+            shared = true;
+            generation++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Makes sure the arrays of rows and masks belong to this playfield alone.
+     */
+    private void ownRows()
+    {
+        if( shared )
+        {
+            rows = rows.clone();
+            masks = masks.clone();
+            shared = false;
+        }
+        snapshot = null;
+    }
+
+    /**
+     * Makes sure a row belongs to this playfield alone, so that its cells may be written.
+     * @param y the y coordinate of the row.
+     * @return the row.
+     */
+    private byte[] ownRow( int y )
+    {
+        ownRows();
+        if( rowGenerations[ y ] != generation )
+        {
+            rows[ y ] = rows[ y ].clone();
+            rowGenerations[ y ] = generation;
+        }
+        return rows[ y ];
+    }
+
+    /**
+     * Gets the contents of a cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return EMPTY, or the type of the piece the block came from plus 1.
+     */
+    public byte get( int x, int y )
+    {
+        return rows[ y ][ x ];
+    }
+
+    /**
+     * Gets the contents of a cell, the same as get.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return EMPTY, or the type of the piece the block came from plus 1.
+     */
+    @Override
+    public byte getCell( int x, int y )
+    {
+        return rows[ y ][ x ];
+    }
+
+    /**
+     * Sets the contents of a cell, keeping the row masks and the hash in step.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @param cell EMPTY, or the type of a piece plus 1.
+     */
+    void set( int x, int y, byte cell )
+    {
+        if( rows[ y ][ x ] != cell )
+        {
+            ownRow( y )[ x ] = cell;
+            version++;
+            boolean wasOccupied = ( masks[ y ] & ( 1 << x ) ) != 0;
+            if( wasOccupied != ( cell != EMPTY ) )
+            {
+                masks[ y ] ^= 1 << x;
+                hash ^= zobrist.cellKey( x, y );
+            }
+        }
+    }
+
+    /**
+     * Empties a row. The row is replaced rather than written, so this does
+     * not depend on the width of the board.
+     * @param y the y coordinate of the row.
+     */
+    void clearRow( int y )
+    {
+        if( masks[ y ] != 0 || rows[ y ] != emptyRow )
+        {
+            ownRows();
+            version++;
+            hash ^= zobrist.rowHash( masks[ y ], y );
+            masks[ y ] = 0;
+            rows[ y ] = emptyRow;
+            rowGenerations[ y ] = 0;
+        }
+    }
+
+    /**
+     * Moves every row above the given row down by one, dropping the given
+     * row and leaving an empty row at the top. Rows are moved, not copied.
+     * @param y the y coordinate of the row that is dropped.
+     */
+    void shiftDown( int y )
+    {
+        ownRows();
+        version++;
+        for( int row = y; row > 0; row-- )
+        {
+            // The row's cells change, swap its old cells for its new ones in the hash.
+            hash ^= zobrist.rowHash( masks[ row ], row ) ^ zobrist.rowHash( masks[ row - 1 ], row );
+            rows[ row ] = rows[ row - 1 ];
+            masks[ row ] = masks[ row - 1 ];
+            rowGenerations[ row ] = rowGenerations[ row - 1 ];
+        }
+        // The top row has nothing above it to shift down.
+        hash ^= zobrist.rowHash( masks[ 0 ], 0 );
+        rows[ 0 ] = emptyRow;
+        masks[ 0 ] = 0;
+        rowGenerations[ 0 ] = 0;
+    }
+
+    /**
+     * Removes every full row at or above the given row and lets the rows
+     * above fall into their place, in a single sweep from the given row to
+     * the top. Each remaining row is moved at most once, by reference, and
+     * the rows freed at the top are empty.
+     * @param bottom the y coordinate of the lowest row that may be full.
+     * @return the y coordinates the full rows had, from the top down, or an
+     * empty array if no row was full.
+     */
+    int[] clearFullRows( int bottom )
+    {
+        int count = 0;
+        int write = bottom;
+        for( int read = bottom; read >= 0; read-- )
+        {
+            if( masks[ read ] == fullRowMask )
+            {
+                if( count == 0 )
+                {
+                    ownRows();
+                }
+                hash ^= zobrist.rowHash( masks[ read ], read );
+                fullRows[ count++ ] = read;
+            }
+            else
+            {
+                if( write != read )
+                {
+                    // The row's cells move, swap their old place for their new one in the hash.
+                    hash ^= zobrist.rowHash( masks[ read ], read ) ^ zobrist.rowHash( masks[ read ], write );
+                    rows[ write ] = rows[ read ];
+                    masks[ write ] = masks[ read ];
+                    rowGenerations[ write ] = rowGenerations[ read ];
+                }
+                write--;
+            }
+        }
+        if( count == 0 )
+        {
+            return NO_ROWS;
+        }
+        version++;
+        // The rows left at the top have nothing above them to fall into place.
+        // Their cells have already left the hash, as full or as moved rows.
+        for( ; write >= 0; write-- )
+        {
+            rows[ write ] = emptyRow;
+            masks[ write ] = 0;
+            rowGenerations[ write ] = 0;
+        }
+        int[] answer = new int[ count ];
+        for( int i = 0; i < count; i++ )
+        {
+            answer[ i ] = fullRows[ count - 1 - i ];
+        }
+        return answer;
+    }
+
+    /**
+     * Pushes every row up and fills the rows freed at the bottom with
+     * garbage, every cell but one hole. Rows pushed past the top are lost.
+     * The garbage rows share one array, which is copied before it is written.
+     * @param count the number of garbage rows.
+     * @param hole the x coordinate of the empty cell of each garbage row.
+     * @return true if blocks were pushed past the top.
+     */
+    boolean addGarbage( int count, int hole )
+    {
+        boolean answer = false;
+        count = Math.min( count, height );
+        if( count > 0 )
+        {
+            ownRows();
+            version++;
+            for( int y = 0; y < count; y++ )
+            {
+                if( masks[ y ] != 0 )
+                {
+                    hash ^= zobrist.rowHash( masks[ y ], y );
+                    answer = true;
+                }
+            }
+            for( int y = count; y < height; y++ )
+            {
+                // The row's cells move, swap their old place for their new one in the hash.
+                hash ^= zobrist.rowHash( masks[ y ], y ) ^ zobrist.rowHash( masks[ y ], y - count );
+                rows[ y - count ] = rows[ y ];
+                masks[ y - count ] = masks[ y ];
+                rowGenerations[ y - count ] = rowGenerations[ y ];
+            }
+            byte[] garbage = new byte[ width ];
+            Arrays.fill( garbage, GARBAGE );
+            garbage[ hole ] = EMPTY;
+            int mask = fullRowMask & ~( 1 << hole );
+            for( int y = height - count; y < height; y++ )
+            {
+                hash ^= zobrist.rowHash( mask, y );
+                rows[ y ] = garbage;
+                masks[ y ] = mask;
+                rowGenerations[ y ] = 0;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Empties every cell.
+     */
+    void clear()
+    {
+        rows = new byte[ height ][];
+        for( int y = 0; y < height; y++ )
+        {
+            rows[ y ] = emptyRow;
+            rowGenerations[ y ] = 0;
+        }
+        masks = new int[ height ];
+        hash = 0;
+        version++;
+        shared = false;
+        snapshot = null;
+    }
+
+    /**
+     * Checks whether a row is full.
+     * @param y the y coordinate of the row.
+     * @return true if every cell of the row holds a block.
+     */
+    public boolean isFull( int y )
+    {
+        return masks[ y ] == fullRowMask;
+    }
+
+    /**
+     * Checks whether a cell holds a block.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return true if the cell holds a block.
+     */
+    @Override
+    public boolean isOccupied( int x, int y )
+    {
+        return ( masks[ y ] & ( 1 << x ) ) != 0;
+    }
+
+    /**
+     * Gets the occupancy of a row.
+     * @param y the y coordinate of the row.
+     * @return a bitmask where bit x is set when the cell (x, y) holds a block.
+     */
+    @Override
+    public int getRowMask( int y )
+    {
+        return masks[ y ];
+    }
+
+    /**
+     * Gets the occupancy of every row without copying it, for pieces to
+     * check their moves against. The array must not be changed, and is only
+     * valid until the playfield changes.
+     */
+    int[] getMasks()
+    {
+        return masks;
+    }
+
+    /**
+     *
+     * @return Returns a copy of the occupancy of every row, see getRowMask.
+     */
+    public int[] getRowMasks()
+    {
+        return masks.clone();
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist hash of every occupied cell.
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     *
+     * @return Returns the number of changes made to the board so far.
+     */
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Sets the version back after changes that were undone, so that readers
+     * do not see a change where the cells are the same as before.
+     * @param version the version the cells were last the same at.
+     */
+    void restoreVersion( long version )
+    {
+        this.version = version;
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist keys the cells are hashed with.
+     */
+    public Zobrist getZobrist()
+    {
+        return zobrist;
+    }
+
+    /**
+     *
+     * @return Returns the width of the board in cells.
+     */
+    @Override
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     *
+     * @return Returns the height of the board in cells.
+     */
+    @Override
+    public int getHeight()
+    {
+        return height;
+    }
+}
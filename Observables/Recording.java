@@ -0,0 +1,310 @@
+package Observables;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A log of the actions a TetrisGame performed, enough to play the game again
+ * exactly: the kind of piece sequence and the seed the game drew its pieces
+ * with, the size of its board,
+ * and every action together with the tick it was performed at.
+ *
+ * Each action takes a few bytes. The number of ticks since the previous
+ * action is written as a variable length integer, 7 bits per byte with the
+ * high bit set on every byte but the last, followed by the action itself.
+ * Garbage an opponent sent is written the same way, with GARBAGE in place of
+ * the action and followed by the number of rows and the column of the hole.
+ *
+ * A game records on the thread that advances it, while the recording may be
+ * saved from another thread.
+ */
+public class Recording
+{
+    private static final int MAGIC = 0x54524543; // "TREC"
+    private static final int VERSION = 3;
+    // Recordings before garbage could be sent are read just the same.
+    private static final int OLDEST_VERSION = 2;
+    /** Marks garbage among the actions. */
+    static final byte GARBAGE = 0x7F;
+    private static final PieceSequence[] SEQUENCES = PieceSequence.values();
+    private static final GameAction[] ACTIONS = GameAction.values();
+
+    //Attributes
+    private final PieceSequence sequence;
+    private final long seed;
+    private final int boardWidth, boardHeight;
+    private byte[] bytes = new byte[ 256 ];
+    private int size, actionCount;
+    private long lastActionTick, length;
+
+    /**
+     * Creates an empty recording.
+     * @param sequence the kind of piece sequence of the recorded game.
+     * @param seed the seed of the recorded game.
+     * @param boardWidth the width of the recorded game's board.
+     * @param boardHeight the height of the recorded game's board.
+     */
+    public Recording( PieceSequence sequence, long seed, int boardWidth, int boardHeight )
+    {
+        this.sequence = sequence;
+        this.seed = seed;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+    }
+
+    /**
+     * Appends an action.
+     * @param tick the number of ticks the game had been advanced by when the action was performed.
+     * @param action the action.
+     */
+    synchronized void record( long tick, GameAction action )
+    {
+        writeTick( tick );
+        bytes[ size++ ] = (byte)action.ordinal();
+        actionCount++;
+    }
+
+    /**
+     * Appends garbage sent by an opponent.
+     * @param tick the number of ticks the game had been advanced by when the garbage arrived.
+     * @param lines the number of garbage rows.
+     * @param hole the column of the empty cell of each row.
+     */
+    synchronized void recordGarbage( long tick, int lines, int hole )
+    {
+        writeTick( tick );
+        bytes[ size++ ] = GARBAGE;
+        bytes[ size++ ] = (byte)lines;
+        bytes[ size++ ] = (byte)hole;
+    }
+
+    /**
+     * Writes the ticks since the previous entry, making room for the entry as well.
+     */
+    private void writeTick( long tick )
+    {
+        if( size + 13 > bytes.length )
+        {
+            bytes = Arrays.copyOf( bytes, bytes.length * 2 );
+        }
+        long delta = tick - lastActionTick;
+        while( delta >= 0x80 )
+        {
+            bytes[ size++ ] = (byte)( delta | 0x80 );
+            delta >>>= 7;
+        }
+        bytes[ size++ ] = (byte)delta;
+        lastActionTick = tick;
+        length = Math.max( length, tick );
+    }
+
+    /**
+     * Notes that the recorded game was advanced to the given tick.
+     * @param tick the number of ticks the game has been advanced by.
+     */
+    synchronized void setLength( long tick )
+    {
+        length = tick;
+    }
+
+    /**
+     * Copies the encoded actions.
+     * @return the actions as written by record.
+     */
+    synchronized byte[] getActions()
+    {
+        return Arrays.copyOf( bytes, size );
+    }
+
+    /**
+     *
+     * @return Returns the kind of piece sequence of the recorded game.
+     */
+    public PieceSequence getPieceSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     *
+     * @return Returns the seed of the recorded game.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     *
+     * @return Returns the width of the recorded game's board.
+     */
+    public int getBoardWidth()
+    {
+        return boardWidth;
+    }
+
+    /**
+     *
+     * @return Returns the height of the recorded game's board.
+     */
+    public int getBoardHeight()
+    {
+        return boardHeight;
+    }
+
+    /**
+     *
+     * @return Returns the number of ticks the recorded game was advanced by.
+     */
+    public synchronized long getLength()
+    {
+        return length;
+    }
+
+    /**
+     *
+     * @return Returns the number of actions recorded.
+     */
+    public synchronized int getActionCount()
+    {
+        return actionCount;
+    }
+
+    /**
+     *
+     * @return Returns the number of bytes the recorded actions take.
+     */
+    public synchronized int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Saves the recording.
+     * @param out the stream to write to, it is not closed.
+     * @throws IOException if the stream cannot be written.
+     */
+    public void writeTo( OutputStream out ) throws IOException
+    {
+        byte[] actions;
+        long ticks;
+        int count;
+        synchronized( this )
+        {
+            actions = getActions();
+            ticks = length;
+            count = actionCount;
+        }
+        DataOutputStream data = new DataOutputStream( out );
+        data.writeInt( MAGIC );
+        data.writeByte( VERSION );
+        data.writeByte( sequence.ordinal() );
+        data.writeLong( seed );
+        data.writeShort( boardWidth );
+        data.writeShort( boardHeight );
+        data.writeLong( ticks );
+        data.writeInt( count );
+        data.writeInt( actions.length );
+        data.write( actions );
+        data.flush();
+    }
+
+    /**
+     * Loads a recording saved with writeTo.
+     * @param in the stream to read from, it is not closed.
+     * @return the recording.
+     * @throws IOException if the stream cannot be read, or does not hold a whole recording that can be replayed.
+     */
+    public static Recording readFrom( InputStream in ) throws IOException
+    {
+        DataInputStream data = new DataInputStream( in );
+        int version = data.readInt() == MAGIC ? data.readUnsignedByte() : -1;
+        if( version < OLDEST_VERSION || version > VERSION )
+        {
+            throw new IOException( "not a recording of version " + OLDEST_VERSION + " to " + VERSION );
+        }
+        int sequence = data.readUnsignedByte();
+        if( sequence >= SEQUENCES.length )
+        {
+            throw new IOException( "unknown piece sequence " + sequence );
+        }
+        long seed = data.readLong();
+        int width = data.readUnsignedShort(), height = data.readUnsignedShort();
+        if( width < 1 || width > Playfield.MAX_WIDTH || height < 1 )
+        {
+            throw new IOException( "cannot replay a board of " + width + " by " + height );
+        }
+        Recording recording = new Recording( SEQUENCES[ sequence ], seed, width, height );
+        recording.length = data.readLong();
+        recording.actionCount = data.readInt();
+        recording.size = data.readInt();
+        if( recording.length < 0 || recording.actionCount < 0 || recording.size < 0 )
+        {
+            throw new IOException( "corrupt recording header" );
+        }
+        // Grows as the bytes arrive, so a corrupt size cannot allocate more than the stream holds.
+        recording.bytes = data.readNBytes( recording.size );
+        if( recording.bytes.length < recording.size )
+        {
+            throw new IOException( "recording cut off after " + recording.bytes.length + " of " + recording.size + " bytes" );
+        }
+        recording.checkActions();
+        return recording;
+    }
+
+    /**
+     * Checks that the actions read from a stream can be replayed: every
+     * entry is whole and holds a known action or garbage, the ticks stay
+     * within the length and the number of actions is the one recorded.
+     * @throws IOException if the actions are corrupt.
+     */
+    private void checkActions() throws IOException
+    {
+        int i = 0, actions = 0;
+        long tick = 0;
+        while( i < size )
+        {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                if( i >= size || shift > 63 )
+                {
+                    throw new IOException( "corrupt tick at byte " + i );
+                }
+                b = bytes[ i++ ];
+                delta |= (long)( b & 0x7F ) << shift;
+                shift += 7;
+            }
+            while( b < 0 );
+            if( delta < 0 || delta > length - tick )
+            {
+                throw new IOException( "action past the end of the recording at byte " + i );
+            }
+            tick += delta;
+            int entry = i < size ? bytes[ i ] : -1;
+            if( entry == GARBAGE && i + 3 <= size )
+            {
+                i += 3;
+            }
+            else if( entry >= 0 && entry < ACTIONS.length )
+            {
+                i++;
+                actions++;
+            }
+            else
+            {
+                throw new IOException( "corrupt action at byte " + i );
+            }
+        }
+        if( actions != actionCount )
+        {
+            throw new IOException( "recording holds " + actions + " actions instead of " + actionCount );
+        }
+    }
+}
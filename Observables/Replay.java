@@ -0,0 +1,72 @@
+package Observables;
+
+/**
+ * Plays a Recording again without a GameLoop, as fast as the game can be
+ * advanced. The actions are performed at the ticks they were recorded at
+ * and before that tick is run, just as a GameLoop performs queued input
+ * at the start of a tick, so the replayed game ends up exactly where the
+ * recorded game was. Garbage from an opponent is pushed into the game at
+ * the tick it arrived at in the same way.
+ */
+public class Replay
+{
+    private static final GameAction[] ACTIONS = GameAction.values();
+
+    /**
+     * Replays a recording on a new game without any listeners.
+     * @param recording the recording to play.
+     * @return the game once every recorded tick was run.
+     */
+    public static TetrisGame play( Recording recording )
+    {
+        TetrisGame game = new TetrisGame( recording.getBoardHeight(), recording.getBoardWidth() );
+        play( recording, game );
+        return game;
+    }
+
+    /**
+     * Replays a recording on a game, which is restarted with the recorded
+     * piece sequence and seed first. The listeners of the game see every update.
+     * @param recording the recording to play.
+     * @param game a game with a board of the recorded size.
+     */
+    public static void play( Recording recording, TetrisGame game )
+    {
+        game.restart( recording.getPieceSequence(), recording.getSeed() );
+        byte[] actions = recording.getActions();
+        long tick = 0;
+        int i = 0;
+        while( i < actions.length )
+        {
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                b = actions[ i++ ];
+                delta |= (long)( b & 0x7F ) << shift;
+                shift += 7;
+            }
+            while( b < 0 );
+            tick += delta;
+            while( game.getTicks() < tick )
+            {
+                game.tick();
+            }
+            if( actions[ i ] == Recording.GARBAGE )
+            {
+                game.receiveGarbage( actions[ i + 1 ] & 0xFF, actions[ i + 2 ] & 0xFF );
+                i += 3;
+            }
+            else
+            {
+                game.respond( ACTIONS[ actions[ i++ ] ] );
+            }
+        }
+        long length = recording.getLength();
+        while( game.getTicks() < length )
+        {
+            game.tick();
+        }
+    }
+}
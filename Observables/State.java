@@ -1,8 +1,5 @@
-
 package Observables;
 
-import java.awt.event.KeyEvent;
-
 /**
  * Definition of the State interface. The state interface allows an object
  * to have a state and to handle the same action dependent upon its state.
@@ -10,5 +7,11 @@ import java.awt.event.KeyEvent;
  */
 public interface State 
 {
-    public void respond(KeyEvent event, TetrisGame game, boolean pressedOrReleased);
+    public void respond(GameAction action, TetrisGame game);
+
+    /**
+     * Advances the game by one logical tick of time.
+     * @param game The TetrisGame that is advanced.
+     */
+    public void tick(TetrisGame game);
 }
@@ -10,21 +10,81 @@ import java.awt.Color;
 public class Tetrimino
 {
     //Attributes
-    private Block[] blocks = new Block[4];
-    private Block[][] blockRotations = new Block[28][4];
+    // Every rotation of every piece type, shared by all tetriminoes. Row
+    // (pieceType * 4) + rotation holds the x,y offsets of the 4 blocks of that
+    // rotation from the piece's origin, packed as x0, y0, x1, y1, ...
+    private static final int[][] ROTATIONS =
+    {
+        //L-Block rotations
+        { 0, 0,  0, 1,  0, 2,  1, 2 },
+        { 0, 0,  1, 0,  2, 0,  0, 1 },
+        { 0, 0,  1, 0,  1, 1,  1, 2 },
+        { 2, 0,  0, 1,  1, 1,  2, 1 },
+        //J Block Rotations
+        { 1, 0,  1, 1,  0, 2,  1, 2 },
+        { 0, 0,  1, 1,  0, 1,  2, 1 },
+        { 0, 0,  1, 0,  0, 1,  0, 2 },
+        { 0, 0,  1, 0,  2, 0,  2, 1 },
+        //T Block Rotations
+        { 1, 0,  0, 1,  2, 1,  1, 1 },
+        { 0, 0,  0, 1,  1, 1,  0, 2 },
+        { 0, 0,  1, 0,  2, 0,  1, 1 },
+        { 1, 0,  0, 1,  1, 2,  1, 1 },
+        //I Block rotations
+        { 0, 0,  0, 1,  0, 2,  0, 3 },
+        { 0, 0,  1, 0,  2, 0,  3, 0 },
+        { 0, 0,  0, 1,  0, 2,  0, 3 },
+        { 0, 0,  1, 0,  2, 0,  3, 0 },
+        //O block rotations
+        { 0, 0,  1, 0,  0, 1,  1, 1 },
+        { 0, 0,  1, 0,  0, 1,  1, 1 },
+        { 0, 0,  1, 0,  0, 1,  1, 1 },
+        { 0, 0,  1, 0,  0, 1,  1, 1 },
+        //Z block rotations
+        { 0, 0,  1, 0,  1, 1,  2, 1 },
+        { 1, 0,  0, 1,  0, 2,  1, 1 },
+        { 0, 0,  1, 0,  1, 1,  2, 1 },
+        { 1, 0,  0, 1,  0, 2,  1, 1 },
+        //S block rotations
+        { 1, 0,  2, 0,  0, 1,  1, 1 },
+        { 0, 0,  0, 1,  1, 1,  1, 2 },
+        { 1, 0,  2, 0,  0, 1,  1, 1 },
+        { 0, 0,  0, 1,  1, 1,  1, 2 }
+    };
+    // The same rotations as one bitmask per row of the piece (bit x set when
+    // the piece has a block at offset x in that row), plus the largest x and y
+    // offset of each rotation. These are derived from ROTATIONS once.
+    private static final int[][] ROW_MASKS = new int[ ROTATIONS.length ][ 4 ];
+    private static final int[] MAX_X = new int[ ROTATIONS.length ],
+                               MAX_Y = new int[ ROTATIONS.length ];
+    private static final Color L_COLOR = new Color( 239, 121, 33 ),
+                               J_COLOR = new Color( 0, 0, 255 ),
+                               T_COLOR = new Color( 173, 77, 156 ),
+                               I_COLOR = new Color( 49, 199, 239),
+                               O_COLOR = new Color( 247, 211, 8 ),
+                               Z_COLOR = new Color( 255, 0, 0 ),
+                               S_COLOR = new Color( 0, 255, 0 ),
+                               BACKGROUND_COLOR = new Color( 127, 127, 127 );
+
+    static
+    {
+        for( int r = 0; r < ROTATIONS.length; r++ )
+        {
+            for( int i = 0; i < 4; i++ )
+            {
+                int x = ROTATIONS[ r ][ i * 2 ], y = ROTATIONS[ r ][ ( i * 2 ) + 1 ];
+                ROW_MASKS[ r ][ y ] |= 1 << x;
+                MAX_X[ r ] = Math.max( MAX_X[ r ], x );
+                MAX_Y[ r ] = Math.max( MAX_Y[ r ], y );
+            }
+        }
+    }
+
     private Color color;
-    private int centerX;
+    private int xPos, yPos;
     private int curRot;
     private int blockType;
     private int boardWidth, boardHeight;
-    private final Color L_COLOR = new Color( 239, 121, 33 ),
-                        J_COLOR = new Color( 0, 0, 255 ),
-                        T_COLOR = new Color( 173, 77, 156 ),
-                        I_COLOR = new Color( 49, 199, 239),
-                        O_COLOR = new Color( 247, 211, 8 ),
-                        Z_COLOR = new Color( 255, 0, 0 ),
-                        S_COLOR = new Color( 0, 255, 0 ),
-                        BACKGROUND_COLOR = new Color( 127, 127, 127 );
 
     
     //Constructors
@@ -49,273 +109,102 @@ public class Tetrimino
         this.boardHeight = boardHeight;
         blockType = pieceType;
         curRot = 0;
-        centerX = (boardWidth/2) - 2;
-
-        // Pre-populate all of the possible block Rotations
-
-        //L-Block rotations
-        //default position
-        blockRotations[0][0] = new Block( 0, 0, color );
-        blockRotations[0][1] = new Block( 0, 1, color );
-        blockRotations[0][2] = new Block( 0, 2, color );
-        blockRotations[0][3] = new Block( 1, 2, color );
-        //position 2
-        blockRotations[1][0] = new Block( 0, 0, color );
-        blockRotations[1][1] = new Block( 1, 0, color );
-        blockRotations[1][2] = new Block( 2, 0, color );
-        blockRotations[1][3] = new Block( 0, 1, color );
-        //position 3
-        blockRotations[2][0] = new Block( 0, 0, color );
-        blockRotations[2][1] = new Block( 1, 0, color );
-        blockRotations[2][2] = new Block( 1, 1, color );
-        blockRotations[2][3] = new Block( 1, 2, color );
-        //position 4
-        blockRotations[3][0] = new Block( 2, 0, color );
-        blockRotations[3][1] = new Block( 0, 1, color );
-        blockRotations[3][2] = new Block( 1, 1, color );
-        blockRotations[3][3] = new Block( 2, 1, color );
-
-        //J Block Rotations
-        blockRotations[4][0] = new Block( 1, 0, color );
-        blockRotations[4][1] = new Block( 1, 1, color );
-        blockRotations[4][2] = new Block( 0, 2, color );
-        blockRotations[4][3] = new Block( 1, 2, color );
-
-        blockRotations[5][0] = new Block( 0, 0, color );
-        blockRotations[5][1] = new Block( 1, 1, color );
-        blockRotations[5][2] = new Block( 0, 1, color );
-        blockRotations[5][3] = new Block( 2, 1, color );
-
-        blockRotations[6][0] = new Block( 0, 0, color );
-        blockRotations[6][1] = new Block( 1, 0, color );
-        blockRotations[6][2] = new Block( 0, 1, color );
-        blockRotations[6][3] = new Block( 0, 2, color );
-
-        blockRotations[7][0] = new Block( 0, 0, color );
-        blockRotations[7][1] = new Block( 1, 0, color );
-        blockRotations[7][2] = new Block( 2, 0, color );
-        blockRotations[7][3] = new Block( 2, 1, color );
-
-        //T Block Rotations
-        blockRotations[8][0] = new Block( 1, 0, color );
-        blockRotations[8][1] = new Block( 0, 1, color );
-        blockRotations[8][2] = new Block( 2, 1, color );
-        blockRotations[8][3] = new Block( 1, 1, color );
-
-        blockRotations[9][0] = new Block( 0, 0, color );
-        blockRotations[9][1] = new Block( 0, 1, color );
-        blockRotations[9][2] = new Block( 1, 1, color );
-        blockRotations[9][3] = new Block( 0, 2, color );
-
-        blockRotations[10][0] = new Block( 0, 0, color );
-        blockRotations[10][1] = new Block( 1, 0, color );
-        blockRotations[10][2] = new Block( 2, 0, color );
-        blockRotations[10][3] = new Block( 1, 1, color );
-
-        blockRotations[11][0] = new Block( 1, 0, color );
-        blockRotations[11][1] = new Block( 0, 1, color );
-        blockRotations[11][2] = new Block( 1, 2, color );
-        blockRotations[11][3] = new Block( 1, 1, color );
-
-        //I Block rotations
-        blockRotations[12][0] = new Block( 0, 0, color );
-        blockRotations[12][1] = new Block( 0, 1, color );
-        blockRotations[12][2] = new Block( 0, 2, color );
-        blockRotations[12][3] = new Block( 0, 3, color );
-
-        blockRotations[13][0] = new Block( 0, 0, color );
-        blockRotations[13][1] = new Block( 1, 0, color );
-        blockRotations[13][2] = new Block( 2, 0, color );
-        blockRotations[13][3] = new Block( 3, 0, color );
-
-        blockRotations[14][0] = new Block( 0, 0, color );
-        blockRotations[14][1] = new Block( 0, 1, color );
-        blockRotations[14][2] = new Block( 0, 2, color );
-        blockRotations[14][3] = new Block( 0, 3, color );
-
-        blockRotations[15][0] = new Block( 0, 0, color );
-        blockRotations[15][1] = new Block( 1, 0, color );
-        blockRotations[15][2] = new Block( 2, 0, color );
-        blockRotations[15][3] = new Block( 3, 0, color );
-
-        //O block rotations
-        blockRotations[16][0] = new Block( 0, 0, color );
-        blockRotations[16][1] = new Block( 1, 0, color );
-        blockRotations[16][2] = new Block( 0, 1, color );
-        blockRotations[16][3] = new Block( 1, 1, color );
-
-        blockRotations[17][0] = new Block( 0, 0, color );
-        blockRotations[17][1] = new Block( 1, 0, color );
-        blockRotations[17][2] = new Block( 0, 1, color );
-        blockRotations[17][3] = new Block( 1, 1, color );
-
-        blockRotations[18][0] = new Block( 0, 0, color );
-        blockRotations[18][1] = new Block( 1, 0, color );
-        blockRotations[18][2] = new Block( 0, 1, color );
-        blockRotations[18][3] = new Block( 1, 1, color );
-
-        blockRotations[19][0] = new Block( 0, 0, color );
-        blockRotations[19][1] = new Block( 1, 0, color );
-        blockRotations[19][2] = new Block( 0, 1, color );
-        blockRotations[19][3] = new Block( 1, 1, color );
-
-        //Z block rotations
-        blockRotations[20][0] = new Block( 0, 0, color );
-        blockRotations[20][1] = new Block( 1, 0, color );
-        blockRotations[20][2] = new Block( 1, 1, color );
-        blockRotations[20][3] = new Block( 2, 1, color );
-
-        blockRotations[21][0] = new Block( 1, 0, color );
-        blockRotations[21][1] = new Block( 0, 1, color );
-        blockRotations[21][2] = new Block( 0, 2, color );
-        blockRotations[21][3] = new Block( 1, 1, color );
-
-        blockRotations[22][0] = new Block( 0, 0, color );
-        blockRotations[22][1] = new Block( 1, 0, color );
-        blockRotations[22][2] = new Block( 1, 1, color );
-        blockRotations[22][3] = new Block( 2, 1, color );
-
-        blockRotations[23][0] = new Block( 1, 0, color );
-        blockRotations[23][1] = new Block( 0, 1, color );
-        blockRotations[23][2] = new Block( 0, 2, color );
-        blockRotations[23][3] = new Block( 1, 1, color );
-
-        //S block rotations
-        blockRotations[24][0] = new Block( 1, 0, color );
-        blockRotations[24][1] = new Block( 2, 0, color );
-        blockRotations[24][2] = new Block( 0, 1, color );
-        blockRotations[24][3] = new Block( 1, 1, color );
-
-        blockRotations[25][0] = new Block( 0, 0, color );
-        blockRotations[25][1] = new Block( 0, 1, color );
-        blockRotations[25][2] = new Block( 1, 1, color );
-        blockRotations[25][3] = new Block( 1, 2, color );
-
-        blockRotations[26][0] = new Block( 1, 0, color );
-        blockRotations[26][1] = new Block( 2, 0, color );
-        blockRotations[26][2] = new Block( 0, 1, color );
-        blockRotations[26][3] = new Block( 1, 1, color );
-
-        blockRotations[27][0] = new Block( 0, 0, color );
-        blockRotations[27][1] = new Block( 0, 1, color );
-        blockRotations[27][2] = new Block( 1, 1, color );
-        blockRotations[27][3] = new Block( 1, 2, color );
-
-
-        //select default piece based on piece type
-        this.selectPiece( pieceType );
+        //start in the default rotation at the center of the x axis.
+        xPos = getSpawnX( boardWidth );
+        yPos = 0;
     }
 
 
     /**
      * Transforms the blocks of this tetrimino around the centroid cw or ccw 90 degrees.
      *
-     * The process by which this is done is using knowledge of the current angle(default of 0 degrees)
-     * finding the difference between the original offset from the origin and the current offset.
-     * The next rotation is then pulled from the array and adjusted for offsets accordingly.
+     * The piece keeps its origin and the next rotation is looked up in the
+     * shared rotation table.
      *
-     * If the transform is not successful the blocks remain in their original positions.
+     * If the transform is not successful the piece remains in its original rotation.
+     * @param cw true for a clockwise rotation, false for counter clockwise.
+     * @param board The row masks of the current board, or null to skip the overlap check.
+     * @return returns true if the transform was successful. false otherwise.
      */
-    public void transform( boolean cw, Color[][] board )
+    public boolean transform( boolean cw, int[] board )
     {
-        Block[] oldBlocks = new Block[4];
-        oldBlocks[0] = blocks[0];
-        oldBlocks[1] = blocks[1];
-        oldBlocks[2] = blocks[2];
-        oldBlocks[3] = blocks[3];
-
-        //get offsets
-        int[] offsets = getOffset();
+        boolean answer = true;
+        int oldRot = curRot;
         //increment rotation
         updateCurRot( cw );
-        System.out.println(toString() + " " + curRot +" xOff: " + offsets[0] + " yOff: "+offsets[1]);
-        //update the blocks to the new rotation
-        blocks[0] = blockRotations[ (blockType * 4) + curRot ][0].clone();
-        blocks[1] = blockRotations[ (blockType * 4) + curRot ][1].clone();
-        blocks[2] = blockRotations[ (blockType * 4) + curRot ][2].clone();
-        blocks[3] = blockRotations[ (blockType * 4) + curRot ][3].clone();
-        System.out.println(toString() + " " + curRot +" xOff: " + offsets[0] + " yOff: "+offsets[1]);
-        if(!translate( offsets[0], offsets[1], board))
+        if( !fits( xPos, yPos, board ) )
         {
-            blocks[0] = oldBlocks[0];
-            blocks[1] = oldBlocks[1];
-            blocks[2] = oldBlocks[2];
-            blocks[3] = oldBlocks[3];
+            curRot = oldRot;
+            answer = false;
         }
-       
+        return answer;
     }
 
-    /**
-     * Gets the offset between an original piece at the origin and a current piece.
-     * @return offset[0] is the x distance between the two pieces offset[1] is the
-     * y distance between the two pieces.
-     */
-    private int[] getOffset()
-    {
-        //Determine difference in offset from original
-            int[] offsets = new int[2];
-            int curX, curY, origX, origY;
-            Block origBlock = blockRotations[ (blockType * 4) + curRot ][0];
-            Block curBlock = blocks[0];
-            curX = curBlock.getX();
-            curY = curBlock.getY();
-            origX = origBlock.getX();
-            origY = origBlock.getY();
-            System.out.println( blockRotations[ (blockType * 4) + curRot ][0].toString() +" " + curBlock.toString() );
-            offsets[0] = curX - origX;
-            offsets[1] = curY - origY;
-            return offsets;
-    }
-    
     /**
      * Translates the blocks of this tetrimino. Doesn't allow translation
      * to occur if the translation would put a block of the tetrimino in an invalid position.
      * @param xOffset the x Offset of each block
      * @param yOffset the y Offset of each block
-     * @param board The current board
+     * @param board The row masks of the current board, or null to skip the overlap check.
      * @return returns true if the translation was successful. false otherwise.
      */
-    public boolean translate( int xOffset, int yOffset, Color[][] board )
+    public boolean translate( int xOffset, int yOffset, int[] board )
     {
         boolean answer = false;
         // If the offsets dont move a block out of the board or onto
         // another block
-        if( checkBounds( xOffset, yOffset ) && checkOverlap( xOffset, yOffset, board ) )
+        if( fits( xPos + xOffset, yPos + yOffset, board ) )
         {
             //then translate
-            for( int i = 0; i < 4; i++ )
-            {
-              blocks[ i ].translate( xOffset, yOffset );
-            }
+            xPos = xPos + xOffset;
+            yPos = yPos + yOffset;
             answer = true;
         }
         return answer;
     }
 
     /**
-     * Checks if any blocks will overlap after translation. excluding
-     * current positions.
-     * @param board the current board
+     * Checks whether this piece could be translated without moving it.
+     * @param xOffset the x Offset of each block
+     * @param yOffset the y Offset of each block
+     * @param board The row masks of the current board, or null to skip the overlap check.
+     * @return returns true if the translation would be successful. false otherwise.
+     */
+    public boolean canTranslate( int xOffset, int yOffset, int[] board )
+    {
+        return fits( xPos + xOffset, yPos + yOffset, board );
+    }
+
+    /**
+     * Checks whether the current rotation of this piece would be in a valid
+     * position with its origin at the given coordinates.
+     * @param x the x coordinate of the origin
+     * @param y the y coordinate of the origin
+     * @param board The row masks of the current board, or null to skip the overlap check.
+     * @return true if the piece is within the board and overlaps no blocks.
+     */
+    private boolean fits( int x, int y, int[] board )
+    {
+        return checkBounds( x, y ) && checkOverlap( x, y, board );
+    }
+
+    /**
+     * Checks if any blocks will overlap with the piece's origin at the given
+     * coordinates. The board is given as one bitmask per row, where bit x of
+     * board[ y ] is set when the cell (x, y) is occupied. This piece is
+     * expected to have been removed from the board beforehand.
+     * @param board the row masks of the current board
      * @return true if there is no overlap, false otherwise
      */
-    private boolean checkOverlap( int xOffset, int yOffset, Color[][] board )
+    private boolean checkOverlap( int x, int y, int[] board )
     {
         boolean answer = true;
-        int curX, curY;
+        int[] masks = ROW_MASKS[ (blockType * 4) + curRot ];
         for( int i = 0; i < 4 && answer && board != null; i++ )
         {
-            curX = blocks[ i ].getX();
-            curY = blocks[ i ].getY();
-            if( !( board[curX+xOffset][curY+yOffset].equals( BACKGROUND_COLOR ) )  )
+            if( masks[ i ] != 0 && ( board[ y + i ] & ( masks[ i ] << x ) ) != 0 )
             {
                 answer = false;
-                for( int j = 0; j < 4; j++ )
-                {
-                    if( blocks[ i ].getX() == (curX + xOffset) && blocks[ i ].getY() == (curY + yOffset))
-                    {
-                        answer = true;
-                    }
-                }
             }
         }
 
@@ -323,48 +212,141 @@ public class Tetrimino
     }
 
     /**
-     *  Checks whether this piece will be in an invalid position (outside of the
-     * bounds of the board) after being translated.
-     * @param xOffset the xoffset for the translation
-     * @param yOffset the yoffset for the translation
-     * @return return true if the offsets will not move this piece off the board.
+     *  Checks whether this piece would be in an invalid position (outside of the
+     * bounds of the board) with its origin at the given coordinates.
+     * @param x the x coordinate of the origin
+     * @param y the y coordinate of the origin
+     * @return return true if the piece would not be off the board.
      */
-    private boolean checkBounds( int xOffset, int yOffset )
+    private boolean checkBounds( int x, int y )
     {
-        boolean answer = true;
-        int curX, curY;
-        
-        for( int i = 0; i < 4 && answer; i++ )
-        {
-            curX = blocks[ i ].getX();
-            curY = blocks[ i ].getY();
-            if( ((curX + xOffset) < 0) || ((curX + xOffset) > boardWidth - 1) ||
-                    ((curY + yOffset) < 0) || ((curY + yOffset) > boardHeight - 1) )
-            {
-                answer = false;
-            }
+        int rotation = (blockType * 4) + curRot;
+        return x >= 0 && y >= 0 && x + MAX_X[ rotation ] < boardWidth && y + MAX_Y[ rotation ] < boardHeight;
+    }
 
-           
-        }
-        return answer;
+    /**
+     * Gets the x coordinate new pieces start at.
+     * @param boardWidth the width of the board.
+     * @return the x coordinate of the origin of a new piece.
+     */
+    public static int getSpawnX( int boardWidth )
+    {
+        return (boardWidth/2) - 2;
     }
-    
+
+    /**
+     * Gets one row of a rotation of a piece type as a bitmask, where bit x is
+     * set when the piece has a block at offset x in that row.
+     * @param pieceType the type of piece from 0-6.
+     * @param rotation the rotation from 0-3.
+     * @param row the row of the piece from 0-3, counted from its origin.
+     * @return the bitmask of the row.
+     */
+    public static int getRowMask( int pieceType, int rotation, int row )
+    {
+        return ROW_MASKS[ (pieceType * 4) + rotation ][ row ];
+    }
+
+    /**
+     * Gets the largest x offset of any block in a rotation of a piece type.
+     * @param pieceType the type of piece from 0-6.
+     * @param rotation the rotation from 0-3.
+     * @return the largest x offset from the origin.
+     */
+    public static int getMaxX( int pieceType, int rotation )
+    {
+        return MAX_X[ (pieceType * 4) + rotation ];
+    }
+
+    /**
+     * Gets the largest y offset of any block in a rotation of a piece type.
+     * @param pieceType the type of piece from 0-6.
+     * @param rotation the rotation from 0-3.
+     * @return the largest y offset from the origin.
+     */
+    public static int getMaxY( int pieceType, int rotation )
+    {
+        return MAX_Y[ (pieceType * 4) + rotation ];
+    }
+
+    /**
+     * Gets the x coordinate on the board of one of the blocks of this piece.
+     * @param i the index of the block from 0-3
+     * @return the x coordinate of the block.
+     */
+    public int getBlockX( int i )
+    {
+        return xPos + ROTATIONS[ (blockType * 4) + curRot ][ i * 2 ];
+    }
+
+    /**
+     * Gets the y coordinate on the board of one of the blocks of this piece.
+     * @param i the index of the block from 0-3
+     * @return the y coordinate of the block.
+     */
+    public int getBlockY( int i )
+    {
+        return yPos + ROTATIONS[ (blockType * 4) + curRot ][ ( i * 2 ) + 1 ];
+    }
+
     /**
-     * Gets all of the blocks that compose this tetrimino.
-     * @return
+     * Gets all of the blocks that compose this tetrimino. The blocks are
+     * created on each call, use getBlockX and getBlockY to avoid allocating.
+     * @return the 4 blocks of this piece at their positions on the board.
      */
     public Block[] getBlocks()
     {
+        Block[] blocks = new Block[4];
+        for( int i = 0; i < 4; i++ )
+        {
+            blocks[ i ] = new Block( getBlockX( i ), getBlockY( i ), color );
+        }
         return blocks;
     }
 
     /**
-     * Sets the blocks that compose this piece to the given blocks.
-     * @param blocks
+     *
+     * @return Returns the color of the blocks of this piece.
      */
-    public void setBlocks(Block[] blocks)
+    public Color getColor()
     {
-        this.blocks = blocks.clone();
+        return color;
+    }
+
+    /**
+     *
+     * @return Returns the piece type from 0-6.
+     */
+    public int getType()
+    {
+        return blockType;
+    }
+
+    /**
+     *
+     * @return Returns the current rotation from 0-3.
+     */
+    public int getRotation()
+    {
+        return curRot;
+    }
+
+    /**
+     *
+     * @return Returns the x coordinate of the origin of this piece.
+     */
+    public int getX()
+    {
+        return xPos;
+    }
+
+    /**
+     *
+     * @return Returns the y coordinate of the origin of this piece.
+     */
+    public int getY()
+    {
+        return yPos;
     }
 
     /**
@@ -372,7 +354,7 @@ public class Tetrimino
      * @param pieceType the type of piece from 0-6
      * @return the color associated with the given piece type.
      */
-    private Color findColor( int pieceType )
+    public static Color findColor( int pieceType )
     {
         Color answer;
         if( pieceType == 0 )
@@ -410,65 +392,6 @@ public class Tetrimino
         return answer;
     }
 
-    /**
-     * Selects the starting rotation for a given piecetype
-     * @param pieceType the type of piece to select.
-     */
-    private void selectPiece( int pieceType )
-    {
-        if( pieceType == 0)
-        {
-            blocks[0] = blockRotations[0][0].clone();
-            blocks[1] = blockRotations[0][1].clone();
-            blocks[2] = blockRotations[0][2].clone();
-            blocks[3] = blockRotations[0][3].clone();
-        }
-        else if( pieceType == 1)
-        {
-            blocks[0] = blockRotations[4][0].clone();
-            blocks[1] = blockRotations[4][1].clone();
-            blocks[2] = blockRotations[4][2].clone();
-            blocks[3] = blockRotations[4][3].clone();
-        }
-        else if( pieceType == 2)
-        {
-            blocks[0] = blockRotations[8][0].clone();
-            blocks[1] = blockRotations[8][1].clone();
-            blocks[2] = blockRotations[8][2].clone();
-            blocks[3] = blockRotations[8][3].clone();
-        }
-        else if( pieceType == 3)
-        {
-            blocks[0] = blockRotations[12][0].clone();
-            blocks[1] = blockRotations[12][1].clone();
-            blocks[2] = blockRotations[12][2].clone();
-            blocks[3] = blockRotations[12][3].clone();
-        }
-        else if( pieceType == 4)
-        {
-            blocks[0] = blockRotations[16][0].clone();
-            blocks[1] = blockRotations[16][1].clone();
-            blocks[2] = blockRotations[16][2].clone();
-            blocks[3] = blockRotations[16][3].clone();
-        }
-        else if( pieceType == 5)
-        {
-            blocks[0] = blockRotations[20][0].clone();
-            blocks[1] = blockRotations[20][1].clone();
-            blocks[2] = blockRotations[20][2].clone();
-            blocks[3] = blockRotations[20][3].clone();
-        }
-        else if( pieceType == 6)
-        {
-            blocks[0] = blockRotations[24][0].clone();
-            blocks[1] = blockRotations[24][1].clone();
-            blocks[2] = blockRotations[24][2].clone();
-            blocks[3] = blockRotations[24][3].clone();
-        }
-        //move the piece to the center of the x axis.
-        translate( centerX, 0, null );
-    }
-
     /**
      * Updates the variable that hold what the current degree of rotation is
      * based on whether the piece is being rotated cw or ccw.
@@ -509,7 +432,7 @@ public class Tetrimino
         String answer = "";
         for( int i = 0; i < 4; i++ )
         {
-            answer = answer+" "+blocks[i].toString();
+            answer = answer+" ( "+getBlockX( i )+", "+getBlockY( i )+" )";
         }
         return answer;
     }
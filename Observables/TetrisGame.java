@@ -1,67 +1,115 @@
 
 package Observables;
 
-import Observers.Board;
-import java.awt.Color;
-import java.awt.event.KeyEvent;
+import Diagnostics.GameEvent;
+import Diagnostics.GameMetrics;
+import Diagnostics.LineClearEvent;
+import Diagnostics.NotifyEvent;
+import Diagnostics.PieceLockEvent;
+import Diagnostics.PieceSpawnEvent;
+import Diagnostics.StateTransitionEvent;
+import Diagnostics.TraceBuffer;
+import Diagnostics.TraceEvent;
 import java.util.ArrayList;
-import java.util.Observable;
 import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
 /**
  * The TetrisGame class models a tetrisgame.
  * This model keeps track of the currentstate the game is in
- * (waiting state, or game mode state), all observers (guis)
+ * (waiting state, or game mode state), all observers (guis, bots, ...)
  * that are watching this game, the blocks on the board and their state,
  * the active piece controlled by a client, and the board width and height.
  *
+ * Besides the listeners, which are told on the game's thread that the game
+ * changed, a game publishes what changed as GameChanges to any number of
+ * Flow subscribers, which receive them on their own threads as they ask.
+ *
  * @author ewillis
  */
-public class TetrisGame extends Observable
+public class TetrisGame implements Flow.Publisher<GameChange>
 {
     //Attributes of the Tetris Game
     private State currentState;
-    private ArrayList<Board> observers;
-    private Color[][] blocks;
-    private final Color BACKGROUND_COLOR = new Color( 127, 127, 127 );
+    private ArrayList<GameListener> observers;
+    // The cells of the board, active piece included. The playfield keeps the
+    // occupancy of each row as a bitmask and the Zobrist hash of the board
+    // up to date, and hands out snapshots of the board in constant time.
+    private Playfield playfield;
+    // The features of the locked blocks, kept up to date as pieces lock and
+    // lines clear. Rebuilt when the cells are changed any other way.
+    private BoardFeatures features;
+    private boolean featuresValid;
     private Tetrimino activePiece;
     private final int DEFAULT_BOARD_HEIGHT = 18, DEFAULT_BOARD_WIDTH = 10;
     private int boardHeight, boardWidth;
+    private Gravity gravity = Gravity.DEFAULT;
+    private long ticks;
+    private int linesCleared;
+    private boolean gameOver;
+    // Pieces are drawn from a seeded generator so that a game can be replayed.
+    private PieceSequence sequence = PieceSequence.BAG;
+    private long seed = new Random().nextLong();
+    private PieceGenerator generator = sequence.create( seed );
+    private Recording recording;
+    // How many updates are open, observers are only notified when the
+    // outermost update ends and something changed during it.
+    private int updateDepth;
+    private boolean changed;
+    private final GameMetrics metrics = new GameMetrics();
+    // Ids that tell the Flight Recorder events of games apart.
+    private static final AtomicLong NEXT_ID = new AtomicLong( 1 );
+    private final long id = NEXT_ID.getAndIncrement();
+    private long sessionId;
+    // The latest moves of the game, only kept when tracing is turned on.
+    private final TraceBuffer trace = TraceBuffer.isEnabled() ? new TraceBuffer() : null;
+    // Garbage rows sent by an opponent, taken in at the start of every tick.
+    private final GarbageMailbox garbage = new GarbageMailbox();
+    // The publisher of the changes, created by the first subscription. A
+    // subscriber that has no room left misses the change instead of making
+    // the game wait.
+    private volatile SubmissionPublisher<GameChange> changes;
+    private long changeSequence;
+    private final AtomicLong droppedChanges = new AtomicLong();
+    private final BiPredicate<Flow.Subscriber<? super GameChange>, GameChange> dropChange =
+            ( subscriber, change ) ->
+            {
+                droppedChanges.incrementAndGet();
+                return false;
+            };
 
     //Constructors
     /**
      * -This constructor creates a new game with the given board size and a single observer attached to this subject
        for representing this with a GUI.
-     * @param b A board to attach as an observer to this Tetris game.
+     * @param l A listener to attach as an observer to this Tetris game.
      * @param boardWidth The width of the board for this Tetris game.
      * @param boardHeight The height of the board for this Tetris game.
      */
-    public TetrisGame( Board b, int boardWidth, int boardHeight )
+    public TetrisGame( GameListener l, int boardWidth, int boardHeight )
     {
-        observers = new ArrayList<Board>();
+        this( new ArrayList<GameListener>(), boardWidth, boardHeight );
+        observers.add( l );
     }
     /**
      * -This constructor creates a new game with the given board size and multiple observers, for multiple players in a single game, are
        attached to this subject for representing it with a GUI
-     * @param observers A list of boards that observe this Tetris game.
+     * @param observers A list of listeners that observe this Tetris game.
      * @param boardWidth The width of the board for this Tetris game.
      * @param boardHeight The height of the board for this Tetris game.
+     * @throws IllegalArgumentException if the board is empty or wider than Playfield.MAX_WIDTH.
      */
-    public TetrisGame( ArrayList<Board> observers, int boardWidth, int boardHeight )
+    public TetrisGame( ArrayList<GameListener> observers, int boardWidth, int boardHeight )
     {
+        Playfield.checkSize( boardWidth, boardHeight );
         this.observers = observers;
         this.boardWidth = boardWidth;
         this.boardHeight = boardHeight;
         // TetrisGame defaults to a waiting state when constructed.
         this.currentState = new WaitingState();
-        blocks = new Color[ boardWidth ][ boardHeight ];
-        // Default all blocks on the board to be gray.
-        for( int x = 0; x < this.boardWidth; x++ )
-        {
-            for( int y = 0; y < this.boardHeight; y++ )
-            {
-                blocks[ x ][ y ] = BACKGROUND_COLOR;
-            }
-        }
+        playfield = new Playfield( boardWidth, boardHeight, new Zobrist( boardWidth, boardHeight ) );
     }
 
 
@@ -72,7 +120,7 @@ public class TetrisGame extends Observable
     {
         this.boardHeight = DEFAULT_BOARD_HEIGHT;
         this.boardWidth = DEFAULT_BOARD_WIDTH;
-        observers = new ArrayList<Board>();
+        observers = new ArrayList<GameListener>();
         // TetrisGame defaults to a waiting state when constructed.
         this.currentState = new WaitingState();
 
@@ -85,24 +133,19 @@ public class TetrisGame extends Observable
      * Creates a new tetris game that uses the specified width and height
      * for the board.
      * @param boardHeight the height of the board.
-     * @param boardWidth the width of the board.
+     * @param boardWidth the width of the board, at most Playfield.MAX_WIDTH.
+     * @throws IllegalArgumentException if the board is empty or too wide.
      */
     public TetrisGame(int boardHeight, int boardWidth)
     {
+        Playfield.checkSize( boardWidth, boardHeight );
         this.boardHeight = boardHeight;
         this.boardWidth = boardWidth;
+        observers = new ArrayList<GameListener>();
         // TetrisGame defaults to a waiting state when constructed.
         this.currentState = new WaitingState();
 
-        // Default all blocks on the board to be gray.
-        blocks = new Color[ boardWidth ][ boardHeight ];
-        for( int x = 0; x < this.boardWidth; x++ )
-        {
-            for( int y = 0; y < this.boardHeight; y++ )
-            {
-                blocks[ x ][ y ] = BACKGROUND_COLOR;
-            }
-        }
+        playfield = new Playfield( boardWidth, boardHeight, new Zobrist( boardWidth, boardHeight ) );
     }
 
     /**
@@ -111,74 +154,451 @@ public class TetrisGame extends Observable
      */
     public void setState(State newState)
     {
+       StateTransitionEvent event = new StateTransitionEvent();
+       event.begin();
+       State oldState = currentState;
        currentState = newState;
+       if( wantsChanges() )
+       {
+           publish( new GameChange.StateChanged( id, changeSequence++, ticks,
+                   oldState == null ? null : oldState.getClass().getSimpleName(),
+                   newState.getClass().getSimpleName() ) );
+       }
        this.notifyObs();
+       event.end();
+       if( event.shouldCommit() )
+       {
+           describe( event );
+           event.from = oldState == null ? null : oldState.getClass().getSimpleName();
+           event.to = newState.getClass().getSimpleName();
+           event.commit();
+       }
     }
 
     /**
-     * Attaches a board( observer ) to this tetris game.
-     * @param b The board to attach.
+     * Fills in the ids of this game on a Flight Recorder event.
+     * @param event the event to describe.
      */
-    public void attach( Board b )
+    private void describe( GameEvent event )
     {
-        observers.add( b );
+        event.gameId = id;
+        event.sessionId = sessionId;
     }
 
     /**
-     * Removes the specified board(observer) from this tetrisgame
-     * @param b the board to remove.
+     *
+     * @return Returns the id of this game, unique within the JVM.
      */
-    public void detach( Board b )
+    public long getId()
     {
-        observers.remove( b );
+        return id;
+    }
+
+    /**
+     *
+     * @return Returns the id of the server session playing this game, or 0.
+     */
+    public long getSessionId()
+    {
+        return sessionId;
+    }
+
+    /**
+     * Sets the id of the server session playing this game, which the game's
+     * Flight Recorder events carry.
+     * @param sessionId the id of the session.
+     */
+    public void setSessionId( long sessionId )
+    {
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * Attaches a listener( observer ) such as a board to this tetris game.
+     * @param l The listener to attach.
+     */
+    public void attach( GameListener l )
+    {
+        observers.add( l );
+    }
+
+    /**
+     * Removes the specified listener(observer) from this tetrisgame
+     * @param l the listener to remove.
+     */
+    public void detach( GameListener l )
+    {
+        observers.remove( l );
     }
 
     /**
      * This method is called whenever an attribute changes or the
-     * state changes
+     * state changes. While an update is open the observers are not notified
+     * right away, instead they are notified once when the update ends.
      */
     public void notifyObs()
     {
-        for( Board b : observers )
+        if( updateDepth > 0 )
+        {
+            changed = true;
+        }
+        else
         {
-            b.Update();
+            NotifyEvent event = new NotifyEvent();
+            event.begin();
+            long start = System.nanoTime();
+            for( GameListener l : observers )
+            {
+                l.gameUpdated( this );
+            }
+            metrics.recordNotify( System.nanoTime() - start );
+            event.end();
+            if( event.shouldCommit() )
+            {
+                describe( event );
+                event.observers = observers.size();
+                event.commit();
+            }
         }
     }
 
     /**
      *
-     * @param event the key event forwarded by the GUI
-     * @param pressedOrReleased a boolean that identifies whether the keyevent was
-     * a keypress or a keyrelease event. True means it is a keypress. False
-     * means it is key release
+     * @return Returns the latencies and throughput recorded for this game.
      */
-    public void respond( KeyEvent event, boolean pressedOrReleased )
+    public GameMetrics getMetrics()
     {
-        this.currentState.respond( event, this, pressedOrReleased );
+        return metrics;
     }
 
+    /**
+     * Subscribes to the changes of this game. Each subscriber gets the
+     * changes as it requests them, on a thread of the common pool, and
+     * misses changes while its buffer is full.
+     * @param subscriber the subscriber.
+     */
+    @Override
+    public void subscribe( Flow.Subscriber<? super GameChange> subscriber )
+    {
+        SubmissionPublisher<GameChange> publisher;
+        synchronized( this )
+        {
+            if( changes == null )
+            {
+                changes = new SubmissionPublisher<GameChange>();
+            }
+            publisher = changes;
+        }
+        publisher.subscribe( subscriber );
+    }
 
     /**
-     * Gets the sate of this tetris game.
-     * @return returns the state of the tetris game(each of the blocks on the board as a color)
+     * Completes every subscription to the changes of this game. A later
+     * subscription starts a new publisher.
      */
-    public Object[ ][ ] getState()
+    public synchronized void closeChanges()
     {
-        Object[ ][ ] state = new Object[ this.boardWidth ][ this.boardHeight ];
-        // Copy the board state into the array
-        for( int x = 0; x < this.boardWidth; x++ )
+        if( changes != null )
         {
-            for( int y = 0; y < this.boardHeight; y++ )
+            changes.close();
+            changes = null;
+        }
+    }
+
+    /**
+     *
+     * @return Returns the number of changes subscribers missed because they were behind.
+     */
+    public long getDroppedChanges()
+    {
+        return droppedChanges.get();
+    }
+
+    /**
+     * Checks if anyone subscribed to the changes, so the changes are not
+     * even created when nobody would receive them.
+     * @return true if the changes have at least one subscriber.
+     */
+    private boolean wantsChanges()
+    {
+        SubmissionPublisher<GameChange> publisher = changes;
+        return publisher != null && publisher.hasSubscribers();
+    }
+
+    /**
+     * Hands a change to the subscribers without waiting for any of them.
+     * @param change the change to publish.
+     */
+    private void publish( GameChange change )
+    {
+        SubmissionPublisher<GameChange> publisher = changes;
+        if( publisher != null )
+        {
+            publisher.offer( change, dropChange );
+        }
+    }
+
+    /**
+     *
+     * @return Returns the trace of the latest events of this game, or null when tracing is off.
+     */
+    public TraceBuffer getTrace()
+    {
+        return trace;
+    }
+
+    /**
+     * Opens an update. Every change made until the matching endUpdate is
+     * published to the observers as a single notification. Updates may be
+     * nested.
+     */
+    public void beginUpdate()
+    {
+        updateDepth++;
+    }
+
+    /**
+     * Closes an update opened with beginUpdate. When the outermost update is
+     * closed the observers are notified once if anything changed.
+     */
+    public void endUpdate()
+    {
+        updateDepth--;
+        if( updateDepth == 0 && changed )
+        {
+            changed = false;
+            notifyObs();
+        }
+    }
+
+    /**
+     * Advances this game by one logical tick of time according to the
+     * current state. Called by a GameLoop.
+     */
+    public void tick()
+    {
+        beginUpdate();
+        try
+        {
+            // Garbage counts as arriving between ticks, like queued input.
+            garbage.drainTo( this );
+            ticks++;
+            if( recording != null )
             {
-                state[ x ][ y ] = blocks[ x ][ y ];
+                recording.setLength( ticks );
             }
+            this.currentState.tick( this );
+        }
+        finally
+        {
+            endUpdate();
         }
-        return state;
     }
 
-    public Color[][] getBlocks()
+    /**
+     *
+     * @return Returns the number of ticks this game has been advanced by.
+     */
+    public long getTicks()
     {
-        return blocks;
+        return ticks;
+    }
+
+    /**
+     *
+     * @return Returns the gravity pieces fall with.
+     */
+    public Gravity getGravity()
+    {
+        return gravity;
+    }
+
+    /**
+     * Sets the gravity pieces fall with.
+     * @param gravity the new gravity.
+     */
+    public void setGravity( Gravity gravity )
+    {
+        this.gravity = gravity;
+    }
+
+    /**
+     *
+     * @return Returns the number of lines cleared since the board was last cleared.
+     */
+    public int getLinesCleared()
+    {
+        return linesCleared;
+    }
+
+    /**
+     *
+     * @return Returns the current level, which goes up every 10 lines cleared.
+     */
+    public int getLevel()
+    {
+        return linesCleared / 10;
+    }
+
+    /**
+     *
+     * @return Returns true once a new piece could not be placed, until the board is cleared.
+     */
+    public boolean isGameOver()
+    {
+        return gameOver;
+    }
+
+    /**
+     *
+     * @return Returns the piece controlled by the client.
+     */
+    public Tetrimino getActivePiece()
+    {
+        return activePiece;
+    }
+
+    /**
+     * Restarts this game in the waiting state with a new seed and records
+     * every action performed from now on.
+     * @param seed the seed pieces are drawn with.
+     * @return the recording, which grows as the game is played.
+     */
+    public Recording startRecording( long seed )
+    {
+        restart( sequence, seed );
+        recording = new Recording( sequence, seed, boardWidth, boardHeight );
+        return recording;
+    }
+
+    /**
+     * Stops recording the actions of this game.
+     */
+    public void stopRecording()
+    {
+        recording = null;
+    }
+
+    /**
+     * Clears the board and goes back to the waiting state as if this game
+     * was new, drawing pieces with the given seed from now on.
+     * @param sequence the kind of piece sequence to play with.
+     * @param seed the seed pieces are drawn with.
+     */
+    void restart( PieceSequence sequence, long seed )
+    {
+        beginUpdate();
+        try
+        {
+            setPieceSequence( sequence, seed );
+            ticks = 0;
+            setState( new WaitingState( this ) );
+        }
+        finally
+        {
+            endUpdate();
+        }
+    }
+
+    /**
+     *
+     * @return Returns the seed pieces are drawn with since the game was last restarted.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Draws the following pieces from a new generator of the given kind.
+     * @param sequence the kind of piece sequence to play with.
+     * @param seed the seed of the generator.
+     */
+    public void setPieceSequence( PieceSequence sequence, long seed )
+    {
+        this.sequence = sequence;
+        this.seed = seed;
+        generator = sequence.create( seed );
+    }
+
+    /**
+     *
+     * @return Returns the kind of piece sequence the game is played with.
+     */
+    public PieceSequence getPieceSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Draws the following pieces from the given generator, for example one
+     * split off the generator of another game. A recording restarts the game
+     * with a generator created from a seed instead.
+     * @param generator the generator to draw pieces from.
+     */
+    public void setPieceGenerator( PieceGenerator generator )
+    {
+        this.generator = generator;
+    }
+
+    /**
+     *
+     * @return Returns the generator pieces are drawn from.
+     */
+    public PieceGenerator getPieceGenerator()
+    {
+        return generator;
+    }
+
+    /**
+     * Performs an action from a client according to the current state.
+     * @param action the action forwarded by an input source such as the GUI
+     */
+    public void respond( GameAction action )
+    {
+        // An action may move, lock and clear lines, observers see the result once.
+        long start = System.nanoTime();
+        beginUpdate();
+        try
+        {
+            if( recording != null )
+            {
+                recording.record( ticks, action );
+            }
+            if( TraceBuffer.DEBUG )
+            {
+                trace.record( TraceEvent.ACTION, action.ordinal(), (int)ticks, 0, 0 );
+            }
+            this.currentState.respond( action, this );
+        }
+        finally
+        {
+            // The time the observers take is recorded on its own.
+            metrics.recordRespond( System.nanoTime() - start );
+            endUpdate();
+        }
+    }
+
+
+    /**
+     * Gets a read only view of the board, active piece included, that reads
+     * the cells where the game keeps them. The view follows the game, so it
+     * may only be read on the thread the game runs on, use snapshot to hand
+     * the board to another thread.
+     * @return the live view of the board.
+     */
+    public BoardView getBoard()
+    {
+        return playfield;
+    }
+
+    /**
+     * Takes an unchangeable copy of the board in constant time, see Playfield.
+     * @return the snapshot, which may be handed to any thread.
+     */
+    public BoardSnapshot snapshot()
+    {
+        return playfield.snapshot();
     }
     /**
      *
@@ -203,119 +623,211 @@ public class TetrisGame extends Observable
      */
     public void createNewPiece()
     {
-        //pick a random piece from the starter pieces.
-        Random randGen = new Random();
-        int pieceType = randGen.nextInt(7);
+        PieceSpawnEvent event = new PieceSpawnEvent();
+        event.begin();
+        long start = System.nanoTime();
+        //pick the next piece of the piece sequence.
+        int pieceType = generator.next();
+        spawnPiece( pieceType );
+        metrics.recordSpawn( System.nanoTime() - start );
+        event.end();
+        if( event.shouldCommit() )
+        {
+            describe( event );
+            event.pieceType = pieceType;
+            event.gameOver = gameOver;
+            event.commit();
+        }
+    }
+
+    /**
+     * Creates a new activePiece of the given type at the spawn point.
+     * @param pieceType the type of piece from 0-6.
+     */
+    void spawnPiece( int pieceType )
+    {
         activePiece = new Tetrimino( pieceType, this.boardWidth, this.boardHeight );
         //if this new piece doesn't intersect any blocks
-        if( !isPieceInvalid( activePiece, null) )
+        if( !isPieceInvalid( activePiece ) )
         {
             //then place it on the board.
             addBlocks( activePiece );
+            if( TraceBuffer.INFO )
+            {
+                trace.record( TraceEvent.SPAWN, pieceType, activePiece.getX(), activePiece.getY(), 0 );
+            }
+            if( wantsChanges() )
+            {
+                publish( new GameChange.PieceMoved( id, changeSequence++, ticks, pieceType,
+                        GameChange.cellsOf( null ), GameChange.cellsOf( activePiece ) ) );
+            }
         }
         //otherwise the client has lost the game.
         else
         {
-            this.notifyObsOfLoss();
+            endGame();
         }
         this.notifyObs();
     }
 
-    public void notifyObsOfLoss()
+    /**
+     * Ends the game because the client has lost.
+     */
+    private void endGame()
     {
-        for( Board b : observers )
+        gameOver = true;
+        if( TraceBuffer.INFO )
+        {
+            trace.record( TraceEvent.LOSS, activePiece.getType(), linesCleared, 0, 0 );
+        }
+        if( wantsChanges() )
         {
-            b.displayLossNotification();
+            publish( new GameChange.GameOver( id, changeSequence++, ticks, linesCleared ) );
         }
+        this.notifyObsOfLoss();
     }
 
     /**
-     * Checks if a piece is intersecting blocks already on the board, except for
-     * the given blocks. Or if a piece is outside the bounds of the board.
-     * @return return true if the piece is in an invalid position, false otherwise.
+     *
+     * @return Returns the mailbox an opponent sends garbage rows to this game through.
      */
-    private boolean isPieceInvalid( Tetrimino piece, Block[] exclBlocks )
+    public GarbageMailbox getGarbageMailbox()
     {
-        boolean answer = false;
-        int xPos, yPos;
-
-        // get all of the blocks from the piece
-        Block[] pieceBlocks = piece.getBlocks();
+        return garbage;
+    }
 
-        // set all blocks in pieceBlocks to null that are in exclBlocks
-        if( exclBlocks != null)
+    /**
+     * Pushes the board up by garbage rows from an opponent. The active piece
+     * stays where it is unless the garbage reaches it, then it is pushed up
+     * along with the board. The client loses if blocks are pushed past the
+     * top or the piece cannot get out of the way. Garbage only counts while
+     * a piece is in play.
+     * Called on the game's thread between ticks, see GarbageMailbox.
+     * @param lines the number of garbage rows.
+     * @param hole the column of the empty cell of each row.
+     */
+    public void receiveGarbage( int lines, int hole )
+    {
+        if( !gameOver && activePiece != null && lines > 0 && hole >= 0 && hole < boardWidth )
         {
-            for( int i = 0; i < pieceBlocks.length; i++ )
+            beginUpdate();
+            try
             {
-                for( int j = 0; j < exclBlocks.length; j++ )
+                if( recording != null )
+                {
+                    recording.recordGarbage( ticks, lines, hole );
+                }
+                if( TraceBuffer.INFO )
+                {
+                    trace.record( TraceEvent.GARBAGE, lines, hole, 0, 0 );
+                }
+                int[] oldCells = wantsChanges() ? GameChange.cellsOf( activePiece ) : null;
+                removeBlocks( activePiece );
+                boolean toppedOut = playfield.addGarbage( lines, hole );
+                featuresValid = false;
+                while( isPieceInvalid( activePiece ) && activePiece.translate( 0, -1, null ) )
+                {
+                    // pushed up one row at a time until it is clear of the garbage
+                }
+                boolean pieceFits = !isPieceInvalid( activePiece );
+                if( pieceFits )
                 {
-                    if( pieceBlocks[ i ].equals(  exclBlocks[ j ] ))
+                    addBlocks( activePiece );
+                }
+                if( oldCells != null )
+                {
+                    publish( new GameChange.GarbageAdded( id, changeSequence++, ticks, lines, hole, oldCells ) );
+                    if( pieceFits )
                     {
-                        pieceBlocks[ i ] = null;
-                        j = exclBlocks.length;
+                        publish( new GameChange.PieceMoved( id, changeSequence++, ticks, activePiece.getType(),
+                                GameChange.cellsOf( null ), GameChange.cellsOf( activePiece ) ) );
                     }
                 }
-            }
-        }
-        // check each non null block against blocks in the tetris board. To see
-        // if there is any overlapping
-        for( int i = 0; i < pieceBlocks.length && answer == false; i++)
-        {
-            xPos = pieceBlocks[ i ].getX();
-            yPos = pieceBlocks[ i ].getY();
-            if( pieceBlocks[ i ] == null )
-            {
-                i++;
-            }
-            else
-            {
-                // If a position on the board has a block in it and it overlaps with this piece
-                if( ( xPos < boardWidth && yPos < boardHeight ) && !( blocks[ xPos ][ yPos ].equals( BACKGROUND_COLOR ) ) )
+                if( toppedOut || !pieceFits )
                 {
-                    answer = true;
+                    endGame();
                 }
+                notifyObs();
+            }
+            finally
+            {
+                endUpdate();
             }
         }
-        return answer;
     }
 
     /**
-     * Adds the given piece to the board
-     * @param activePiece the piece to add to the board.
+     * Tells every observer that the client has lost the game.
      */
-    private void addBlocks( Tetrimino activePiece )
+    public void notifyObsOfLoss()
     {
-        Block[] newBlocks = activePiece.getBlocks();
+        for( GameListener l : observers )
+        {
+            l.gameLost( this );
+        }
+    }
 
-        int xPos, yPos;
-        Color newBlockColor;
-        for( int i = 0; i < newBlocks.length; i++ )
+    /**
+     * Tells every observer which lines were cleared at once. The observers
+     * are told before they see the board without the lines.
+     * @param rows the y coordinates the lines had, from the top down.
+     */
+    public void notifyObsOfLines( int[] rows )
+    {
+        for( GameListener l : observers )
         {
-            xPos = newBlocks[ i ].getX();
-            yPos = newBlocks[ i ].getY();
-            newBlockColor = newBlocks[ i ].getColor();
-            newBlocks[i].toString();
-            blocks[ xPos ][ yPos ] = newBlockColor;
+            l.linesCleared( this, rows );
         }
-        this.notifyObs();
     }
 
     /**
-     * Adds the given list of blocks to the board
-     * @param newBlocks the blocks to add to the board.
+     * Checks if a piece is intersecting blocks already on the board, or if a
+     * piece is outside the bounds of the board.
+     * @return return true if the piece is in an invalid position, false otherwise.
      */
-    private void addBlocks( Block[] newBlocks )
+    private boolean isPieceInvalid( Tetrimino piece )
     {
+        boolean answer = false;
         int xPos, yPos;
-        Color newBlockColor;
-        for( int i = 0; i < newBlocks.length; i++ )
+
+        // check each block of the piece against the row masks of the tetris board.
+        // To see if there is any overlapping
+        for( int i = 0; i < 4 && answer == false; i++)
         {
-            xPos = newBlocks[ i ].getX();
-            yPos = newBlocks[ i ].getY();
-            newBlockColor = newBlocks[ i ].getColor();
-            blocks[ xPos ][ yPos ] = newBlockColor;
+            xPos = piece.getBlockX( i );
+            yPos = piece.getBlockY( i );
+            // If a position on the board has a block in it and it overlaps with this piece
+            if( ( xPos < boardWidth && yPos < boardHeight ) && playfield.isOccupied( xPos, yPos ) )
+            {
+                answer = true;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Sets the contents of a single cell on the board, keeping the row masks in step.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @param cell Playfield.EMPTY, or the type of a piece plus 1.
+     */
+    void setBlock( int x, int y, byte cell )
+    {
+        playfield.set( x, y, cell );
+        featuresValid = false;
+    }
+
+    /**
+     * Adds the given piece to the board
+     * @param activePiece the piece to add to the board.
+     */
+    private void addBlocks( Tetrimino activePiece )
+    {
+        byte cell = (byte)( activePiece.getType() + 1 );
+        for( int i = 0; i < 4; i++ )
+        {
+            playfield.set( activePiece.getBlockX( i ), activePiece.getBlockY( i ), cell );
         }
-        this.notifyObs();
     }
 
     /**
@@ -327,131 +839,318 @@ public class TetrisGame extends Observable
     public boolean translate(int xOffset, int yOffset)
     {
         boolean answer;
+        int[] oldCells = wantsChanges() ? GameChange.cellsOf( activePiece ) : null;
+        long version = playfield.getVersion();
         // remove old piece
         removeBlocks( activePiece );
         // translate piece
-        answer = activePiece.translate( xOffset, yOffset, blocks );
+        answer = activePiece.translate( xOffset, yOffset, playfield.getMasks() );
+        if( answer && oldCells != null && ( xOffset != 0 || yOffset != 0 ) )
+        {
+            publish( new GameChange.PieceMoved( id, changeSequence++, ticks, activePiece.getType(),
+                    oldCells, GameChange.cellsOf( activePiece ) ) );
+        }
+        if( TraceBuffer.DEBUG )
+        {
+            trace.record( answer ? TraceEvent.MOVE : TraceEvent.MOVE_BLOCKED, activePiece.getType(),
+                    activePiece.getX(), activePiece.getY(), 0 );
+        }
         // put new piece on board.
         addBlocks( activePiece );
+        if( !answer || ( xOffset == 0 && yOffset == 0 ) )
+        {
+            // The piece is back where it was, and so is the board.
+            playfield.restoreVersion( version );
+        }
         // notify observers
         notifyObs();
         return answer;
     }
 
     /**
-     * Removes the given array of blocks from this game
-     * @param remBlocks the blocks to remove.
+     * Copies the occupancy of the board, one bitmask per row where bit x is
+     * set when the cell (x, y) holds a block.
+     * @return a new array with the row masks of every block, active piece included.
      */
-    private void removeBlocks( Block[] remBlocks )
+    public int[] getRowMasks()
     {
-        int curX, curY;
-        for( int i = 0; i < remBlocks.length; i++ )
-        {
-            curX = remBlocks[ i ].getX();
-            curY = remBlocks[ i ].getY();
-            blocks[ curX ][ curY ] = BACKGROUND_COLOR;
-        }
-        notifyObs();
+        return playfield.getRowMasks();
     }
 
     /**
-     * Removes the blocks in the given piece from this game
-     * @param piece the piece to be removed.
+     * Copies the occupancy of the board without the active piece, one
+     * bitmask per row where bit x is set when the cell (x, y) holds a block.
+     * @return a new array with the row masks of the locked blocks.
      */
-    private void removeBlocks( Tetrimino piece )
+    public int[] getLockedRowMasks()
     {
-        Block[] remBlocks = piece.getBlocks();
-        int curX, curY;
-        for( int i = 0; i < remBlocks.length; i++ )
+        int[] answer = playfield.getRowMasks();
+        if( activePiece != null && !gameOver )
         {
-            curX = remBlocks[ i ].getX();
-            curY = remBlocks[ i ].getY();
-            blocks[ curX ][ curY ] = BACKGROUND_COLOR;
+            for( int i = 0; i < 4; i++ )
+            {
+                answer[ activePiece.getBlockY( i ) ] &= ~( 1 << activePiece.getBlockX( i ) );
+            }
         }
-        notifyObs();
+        return answer;
     }
 
     /**
-     * Locks an active piece, clearing any lines that may result and creating a new piece.
+     *
+     * @return Returns the Zobrist keys this game hashes its board with.
      */
-    void lockActivePiece()
+    public Zobrist getZobrist()
+    {
+        return playfield.getZobrist();
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist hash of every occupied cell, active piece included.
+     */
+    public long getBoardHash()
+    {
+        return playfield.getHash();
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist hash of the locked blocks, without the active piece.
+     */
+    public long getLockedBoardHash()
     {
-        //Look for lines for each unique y coordinate in the active piece.
-        Block[] pieceBlocks = activePiece.getBlocks();
-        int yValue;
-        for( int i = 0; i < pieceBlocks.length; i++ )
+        long answer = playfield.getHash();
+        Zobrist zobrist = playfield.getZobrist();
+        if( activePiece != null && !gameOver )
         {
-            yValue = pieceBlocks[ i ].getY();
-            if( checkForLine( yValue ) )
+            for( int i = 0; i < 4; i++ )
             {
-                removeLine( yValue );
-                shiftBlocksDown( yValue );
+                answer ^= zobrist.cellKey( activePiece.getBlockX( i ), activePiece.getBlockY( i ) );
             }
         }
-        createNewPiece();
+        return answer;
+    }
+
+    /**
+     *
+     * @return Returns the Zobrist hash of the type, rotation and position of
+     * the active piece, or 0 if there is none.
+     */
+    public long getPieceHash()
+    {
+        long answer = 0;
+        if( activePiece != null && !gameOver )
+        {
+            answer = playfield.getZobrist().pieceHash( activePiece.getType(), activePiece.getRotation(),
+                                        activePiece.getX(), activePiece.getY() );
+        }
+        return answer;
+    }
 
+    /**
+     * Checks whether the active piece rests on the stack or the bottom of the
+     * board, so that it cannot fall any further.
+     * @return true if the active piece cannot move down.
+     */
+    boolean isActivePieceResting()
+    {
+        return getDropDistance() == 0;
     }
 
+    /**
+     * Finds where the active piece would land if it was dropped straight down.
+     * @return the y coordinate the origin of the active piece would land at,
+     * or -1 if there is no active piece.
+     */
+    public int getLandingY()
+    {
+        int answer = -1;
+        if( activePiece != null && !gameOver )
+        {
+            answer = activePiece.getY() + getDropDistance();
+        }
+        return answer;
+    }
 
-   /**
-     * Shifts all blocks down 1 cell vertically to fill in a line that has been
-    * removed
-     * @param yValue any block with a y value < y value gets shifted down.
+    /**
+     * Finds how many rows the active piece can fall. Each block of the piece
+     * can fall until it reaches the top of its column, so while the piece is
+     * above the stack this takes a look at 4 column tops. Only a piece that
+     * was moved in under an overhang is dropped row by row.
+     * @return the number of rows the active piece can fall.
      */
-    private void shiftBlocksDown( int yValue )
+    private int getDropDistance()
     {
-        for( int y = yValue; y > 0; y--)
+        BoardFeatures columns = getFeatures();
+        int answer = boardHeight;
+        int x, y;
+        for( int i = 0; i < 4 && answer >= 0; i++ )
+        {
+            x = activePiece.getBlockX( i );
+            y = activePiece.getBlockY( i );
+            answer = y < columns.getColumnTop( x ) ? Math.min( answer, columns.getColumnTop( x ) - y - 1 ) : -1;
+        }
+        if( answer < 0 )
         {
-            for( int x = 0; x < boardWidth; x++ )
+            // The column tops say nothing about the cells below an overhang.
+            int[] lockedRows = getLockedRowMasks();
+            answer = 0;
+            while( activePiece.canTranslate( 0, answer + 1, lockedRows ) )
             {
-                blocks[x][y] = blocks[x][y-1];
+                answer++;
             }
         }
+        return answer;
+    }
+
+    /**
+     * Gets the features of the locked blocks, such as the height of each
+     * column and the number of holes. The features are kept up to date as
+     * the game goes on, so they may be looked at as often as needed.
+     * @return the features, which belong to the thread advancing the game.
+     */
+    public BoardFeatures getFeatures()
+    {
+        if( features == null )
+        {
+            features = new BoardFeatures( boardWidth, boardHeight );
+        }
+        if( !featuresValid )
+        {
+            features.rebuild( getLockedRowMasks() );
+            featuresValid = true;
+        }
+        return features;
     }
 
     /**
-     * Removes a line at the specified yValue.
-     * @param yValue the yvalue of the line to remove.
+     * Removes the blocks in the given piece from this game
+     * @param piece the piece to be removed.
      */
-    private void removeLine( int yValue )
+    private void removeBlocks( Tetrimino piece )
     {
-        for( int x = 0; x < boardWidth; x++ )
+        int curX, curY;
+        for( int i = 0; i < 4; i++ )
         {
-            blocks[x][yValue] =  BACKGROUND_COLOR;
+            curX = piece.getBlockX( i );
+            curY = piece.getBlockY( i );
+            playfield.set( curX, curY, Playfield.EMPTY );
         }
     }
 
     /**
-     * Checks if a line exists at the specified y value
-     * @param yValue the yvalue where a possible line is
-     * @return returns true if every block horizontally at the y-value is not
-     * filled with the background-color. false otherwise.
+     * Locks an active piece, clearing any lines that may result and creating a new piece.
      */
-    private boolean checkForLine( int yValue )
+    void lockActivePiece()
     {
-        boolean answer = true;
-        for( int x = 0; x < boardWidth && answer; x++ )
+        // The line clears and the new piece are published as one update.
+        PieceLockEvent event = new PieceLockEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int lines = 0;
+        int pieceType = activePiece.getType();
+        beginUpdate();
+        try
+        {
+            // Only the rows of the piece can have become full, so the sweep
+            // starts at the lowest of them.
+            int bottom = 0, x, y;
+            for( int i = 0; i < 4; i++ )
+            {
+                x = activePiece.getBlockX( i );
+                y = activePiece.getBlockY( i );
+                bottom = Math.max( bottom, y );
+                if( featuresValid )
+                {
+                    features.add( x, y );
+                }
+            }
+            if( wantsChanges() )
+            {
+                publish( new GameChange.PieceLocked( id, changeSequence++, ticks, pieceType,
+                        GameChange.cellsOf( activePiece ) ) );
+            }
+            if( featuresValid )
+            {
+                // The features need the rows as they were before the clear.
+                features.clearFullRows( playfield.getMasks() );
+            }
+            LineClearEvent clear = new LineClearEvent();
+            clear.begin();
+            int[] rows = playfield.clearFullRows( bottom );
+            lines = rows.length;
+            clear.end();
+            if( lines > 0 && clear.shouldCommit() )
+            {
+                describe( clear );
+                clear.rows = lines;
+                clear.totalLines = linesCleared + lines;
+                clear.commit();
+            }
+            if( TraceBuffer.INFO )
+            {
+                trace.record( TraceEvent.LOCK, pieceType, activePiece.getX(), activePiece.getY(), lines );
+            }
+            if( rows.length > 0 )
+            {
+                linesCleared += rows.length;
+                if( TraceBuffer.INFO )
+                {
+                    trace.record( TraceEvent.CLEAR, lines, linesCleared, 0, 0 );
+                }
+                if( wantsChanges() )
+                {
+                    publish( new GameChange.LinesCleared( id, changeSequence++, ticks, rows.clone(), linesCleared ) );
+                }
+                notifyObsOfLines( rows );
+            }
+            createNewPiece();
+        }
+        finally
         {
-            if( blocks[x][yValue].equals( BACKGROUND_COLOR ) )
+            metrics.recordLock( System.nanoTime() - start, lines );
+            endUpdate();
+            event.end();
+            if( event.shouldCommit() )
             {
-                answer = false;
+                describe( event );
+                event.pieceType = pieceType;
+                event.linesCleared = lines;
+                event.commit();
             }
         }
-        return answer;
     }
 
+
     /**
      * Rotates the active piece cw when cwRot is true and ccw when cwRot is false.
      * @param cwRot cwRot when true means cw rotation.
      */
     void transform( boolean cwRot )
     {
+        int[] oldCells = wantsChanges() ? GameChange.cellsOf( activePiece ) : null;
+        long version = playfield.getVersion();
         // remove old piece
         removeBlocks( activePiece );
-        // translate piece
-        activePiece.transform( cwRot, blocks );
+        // rotate piece
+        boolean rotated = activePiece.transform( cwRot, playfield.getMasks() );
+        if( rotated && oldCells != null )
+        {
+            publish( new GameChange.PieceMoved( id, changeSequence++, ticks, activePiece.getType(),
+                    oldCells, GameChange.cellsOf( activePiece ) ) );
+        }
+        if( TraceBuffer.DEBUG )
+        {
+            trace.record( rotated ? TraceEvent.ROTATE : TraceEvent.ROTATE_BLOCKED, activePiece.getType(),
+                    activePiece.getRotation(), activePiece.getX(), activePiece.getY() );
+        }
         // put new piece on board.
         addBlocks( activePiece );
+        if( !rotated )
+        {
+            // The piece is back where it was, and so is the board.
+            playfield.restoreVersion( version );
+        }
         // notify observers
         notifyObs();
     }
@@ -463,13 +1162,19 @@ public class TetrisGame extends Observable
      */
     void hardTranslate()
     {
-        // While the piece can move downwards
-        while( translate( 0, 1 ) )
+        // The whole drop is published as one update.
+        beginUpdate();
+        try
         {
-            // move it downwards
+            // Move the piece straight to where it lands.
+            translate( 0, getDropDistance() );
+            // When done lock it.
+            lockActivePiece();
+        }
+        finally
+        {
+            endUpdate();
         }
-        // When done lock it.
-        lockActivePiece();
     }
 
     /**
@@ -477,15 +1182,19 @@ public class TetrisGame extends Observable
      */
     public void drawBlocks()
     {
-        // Default all blocks on the board to be gray.
-        blocks = new Color[ boardWidth ][ boardHeight ];
-        for( int x = 0; x < this.boardWidth; x++ )
+        if( playfield == null )
         {
-            for( int y = 0; y < this.boardHeight; y++ )
-            {
-                blocks[ x ][ y ] = BACKGROUND_COLOR;
-            }
+            playfield = new Playfield( boardWidth, boardHeight, new Zobrist( boardWidth, boardHeight ) );
+        }
+        playfield.clear();
+        if( features != null )
+        {
+            features.clear();
+            featuresValid = true;
         }
+        linesCleared = 0;
+        gameOver = false;
+        activePiece = null;
         notifyObs();
     }
 }
@@ -0,0 +1,224 @@
+package Observables;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size cache of board evaluations keyed by Zobrist hash, shared by
+ * any number of search threads without locking.
+ *
+ * Every entry is three longs: the score, the info (the search depth the
+ * score was found at and the generation it was stored in), and the key
+ * exclusive or'ed with both. A reader only accepts an entry when the three
+ * still match its key, so an entry torn by two threads writing at once reads
+ * as a miss instead of as a wrong score.
+ *
+ * Entries live in buckets of two. The first slot of a bucket keeps the
+ * deepest result of the current generation, the second slot takes whatever
+ * does not displace the first. Entries from older generations are replaced
+ * first, so calling newGeneration between searches ages out old results
+ * without clearing the table.
+ */
+public class TranspositionTable
+{
+    private static final long VALID = 1L << 15;
+    private static final int GENERATION_MASK = 0x7FFF;
+
+    //Attributes
+    private final AtomicLongArray checks, scores, data;
+    private final int bucketMask;
+    private volatile int generation;
+    private final LongAdder probes = new LongAdder(), hits = new LongAdder(),
+                             stores = new LongAdder(), replacements = new LongAdder();
+
+    /**
+     * Creates a table.
+     * @param capacity the number of entries, rounded up to a power of 2.
+     */
+    public TranspositionTable( int capacity )
+    {
+        int size = Integer.highestOneBit( Math.max( 2, capacity ) - 1 ) << 1;
+        checks = new AtomicLongArray( size );
+        scores = new AtomicLongArray( size );
+        data = new AtomicLongArray( size );
+        bucketMask = ( size - 1 ) & ~1;
+    }
+
+    /**
+     * Looks up the score of a board.
+     * @param key the Zobrist hash of the board.
+     * @param depth the least search depth the score must have been found at.
+     * @return the stored score, or NaN if there is none deep enough.
+     */
+    public double probe( long key, int depth )
+    {
+        probes.increment();
+        double answer = Double.NaN;
+        int bucket = (int)key & bucketMask;
+        for( int slot = bucket; slot < bucket + 2; slot++ )
+        {
+            long d = data.get( slot );
+            long score = scores.get( slot );
+            if( ( d & VALID ) != 0 && ( checks.get( slot ) ^ d ^ score ) == key && depthOf( d ) >= depth )
+            {
+                answer = Double.longBitsToDouble( score );
+                hits.increment();
+                slot = bucket + 2;
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Stores the score of a board.
+     * @param key the Zobrist hash of the board.
+     * @param depth the search depth the score was found at, from 0-65535.
+     * @param score the score.
+     */
+    public void store( long key, int depth, double score )
+    {
+        stores.increment();
+        int gen = generation;
+        long d = ( (long)( depth & 0xFFFF ) << 16 ) | VALID | gen;
+        long scoreBits = Double.doubleToRawLongBits( score );
+        int bucket = (int)key & bucketMask;
+        long first = data.get( bucket );
+        long second = data.get( bucket + 1 );
+        int slot;
+        if( ( checks.get( bucket ) ^ first ^ scores.get( bucket ) ) == key )
+        {
+            slot = bucket;
+        }
+        else if( ( checks.get( bucket + 1 ) ^ second ^ scores.get( bucket + 1 ) ) == key )
+        {
+            slot = bucket + 1;
+        }
+        else if( ( first & VALID ) == 0 || generationOf( first ) != gen || depth >= depthOf( first ) )
+        {
+            // Keep the deepest current result in the first slot, the
+            // displaced one gets another chance in the second slot.
+            if( ( first & VALID ) != 0 && generationOf( first ) == gen )
+            {
+                checks.set( bucket + 1, checks.get( bucket ) );
+                scores.set( bucket + 1, scores.get( bucket ) );
+                data.set( bucket + 1, first );
+                countReplacement( second );
+            }
+            else
+            {
+                countReplacement( first );
+            }
+            slot = bucket;
+        }
+        else
+        {
+            countReplacement( second );
+            slot = bucket + 1;
+        }
+        data.set( slot, d );
+        scores.set( slot, scoreBits );
+        checks.set( slot, key ^ d ^ scoreBits );
+    }
+
+    /**
+     * Counts a valid entry that is about to be overwritten by another board.
+     */
+    private void countReplacement( long d )
+    {
+        if( ( d & VALID ) != 0 )
+        {
+            replacements.increment();
+        }
+    }
+
+    /**
+     * Starts a new generation. Entries stored before are still found but
+     * are the first to be replaced.
+     */
+    public void newGeneration()
+    {
+        generation = ( generation + 1 ) & GENERATION_MASK;
+    }
+
+    /**
+     * Removes every entry and resets the counters.
+     */
+    public void clear()
+    {
+        for( int i = 0; i < data.length(); i++ )
+        {
+            data.set( i, 0 );
+            scores.set( i, 0 );
+            checks.set( i, 0 );
+        }
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        replacements.reset();
+    }
+
+    private static int depthOf( long d )
+    {
+        return (int)( d >>> 16 ) & 0xFFFF;
+    }
+
+    private static int generationOf( long d )
+    {
+        return (int)d & GENERATION_MASK;
+    }
+
+    /**
+     *
+     * @return Returns the number of entries the table holds.
+     */
+    public int getCapacity()
+    {
+        return data.length();
+    }
+
+    /**
+     *
+     * @return Returns the number of lookups.
+     */
+    public long getProbes()
+    {
+        return probes.sum();
+    }
+
+    /**
+     *
+     * @return Returns the number of lookups that found a score.
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     *
+     * @return Returns the number of scores stored.
+     */
+    public long getStores()
+    {
+        return stores.sum();
+    }
+
+    /**
+     *
+     * @return Returns the number of stored scores that overwrote the score of another board.
+     */
+    public long getReplacements()
+    {
+        return replacements.sum();
+    }
+
+    /**
+     *
+     * @return Returns the fraction of lookups that found a score.
+     */
+    public double getHitRate()
+    {
+        long p = probes.sum();
+        return p == 0 ? 0 : (double)hits.sum() / p;
+    }
+}
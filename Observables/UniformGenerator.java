@@ -0,0 +1,36 @@
+package Observables;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws every piece on its own, each type with the same chance. Long runs
+ * without a given piece are possible.
+ */
+public class UniformGenerator implements PieceGenerator
+{
+    private final SplittableRandom random;
+
+    /**
+     * Creates a generator.
+     * @param seed the seed the pieces are drawn with.
+     */
+    public UniformGenerator( long seed )
+    {
+        this( new SplittableRandom( seed ) );
+    }
+
+    private UniformGenerator( SplittableRandom random )
+    {
+        this.random = random;
+    }
+
+    public int next()
+    {
+        return random.nextInt( 7 );
+    }
+
+    public PieceGenerator split()
+    {
+        return new UniformGenerator( random.split() );
+    }
+}
@@ -0,0 +1,153 @@
+package Observables;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for a board of a given size. Every cell has a random 64 bit
+ * key, and a board hashes to the exclusive or of the keys of its occupied
+ * cells. Filling or emptying a cell therefore changes the hash by a single
+ * exclusive or, so the hash can be kept up to date as the board changes.
+ *
+ * The active piece has its own keys for its type and rotation and for the
+ * coordinates of its origin.
+ *
+ * Keys come from a fixed seed, so boards of the same size hash the same in
+ * every game, on every thread and in every run.
+ */
+public class Zobrist
+{
+    private static final long SEED = 0x5DEECE66DL;
+
+    //Attributes
+    private final int boardWidth, boardHeight;
+    // Indexed y * boardWidth + x.
+    private final long[] cellKeys;
+    // Indexed pieceType * 4 + rotation.
+    private final long[] pieceKeys;
+    private final long[] xKeys, yKeys;
+    // Keys for the number of lines a placement cleared, used by searches.
+    private final long[] lineKeys;
+
+    /**
+     * Creates the keys for a board.
+     * @param boardWidth the width of the board.
+     * @param boardHeight the height of the board.
+     */
+    public Zobrist( int boardWidth, int boardHeight )
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        SplittableRandom random = new SplittableRandom( SEED );
+        cellKeys = new long[ boardWidth * boardHeight ];
+        for( int i = 0; i < cellKeys.length; i++ )
+        {
+            cellKeys[ i ] = random.nextLong();
+        }
+        pieceKeys = new long[ 28 ];
+        for( int i = 0; i < pieceKeys.length; i++ )
+        {
+            pieceKeys[ i ] = random.nextLong();
+        }
+        xKeys = new long[ boardWidth ];
+        for( int i = 0; i < xKeys.length; i++ )
+        {
+            xKeys[ i ] = random.nextLong();
+        }
+        yKeys = new long[ boardHeight ];
+        for( int i = 0; i < yKeys.length; i++ )
+        {
+            yKeys[ i ] = random.nextLong();
+        }
+        lineKeys = new long[ 5 ];
+        for( int i = 0; i < lineKeys.length; i++ )
+        {
+            lineKeys[ i ] = random.nextLong();
+        }
+    }
+
+    /**
+     * Gets the key of a single cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return the key to exclusive or into the hash when the cell is filled or emptied.
+     */
+    public long cellKey( int x, int y )
+    {
+        return cellKeys[ ( y * boardWidth ) + x ];
+    }
+
+    /**
+     * Hashes the occupied cells of one row.
+     * @param mask the row as a bitmask, bit x set when the cell (x, y) is occupied.
+     * @param y the y coordinate of the row.
+     * @return the exclusive or of the keys of the occupied cells.
+     */
+    public long rowHash( int mask, int y )
+    {
+        long answer = 0;
+        int base = y * boardWidth;
+        while( mask != 0 )
+        {
+            answer ^= cellKeys[ base + Integer.numberOfTrailingZeros( mask ) ];
+            mask &= mask - 1;
+        }
+        return answer;
+    }
+
+    /**
+     * Hashes a whole board from scratch.
+     * @param rows the row masks of the board.
+     * @return the exclusive or of the keys of the occupied cells.
+     */
+    public long boardHash( int[] rows )
+    {
+        long answer = 0;
+        for( int y = 0; y < boardHeight; y++ )
+        {
+            answer ^= rowHash( rows[ y ], y );
+        }
+        return answer;
+    }
+
+    /**
+     * Hashes a piece from its type, rotation and origin.
+     * @param pieceType the type of piece from 0-6.
+     * @param rotation the rotation from 0-3.
+     * @param x the x coordinate of the origin.
+     * @param y the y coordinate of the origin.
+     * @return the hash of the piece.
+     */
+    public long pieceHash( int pieceType, int rotation, int x, int y )
+    {
+        return pieceKeys[ ( pieceType * 4 ) + rotation ] ^ xKeys[ x ] ^ yKeys[ y ];
+    }
+
+    /**
+     * Gets the key for the number of lines a move cleared, for searches whose
+     * score depends on more than the resulting board.
+     * @param lines the number of lines from 0-4.
+     * @return the key to exclusive or into the hash.
+     */
+    public long linesKey( int lines )
+    {
+        return lineKeys[ lines ];
+    }
+
+    /**
+     *
+     * @return Returns the width of the boards these keys are for.
+     */
+    public int getWidth()
+    {
+        return boardWidth;
+    }
+
+    /**
+     *
+     * @return Returns the height of the boards these keys are for.
+     */
+    public int getHeight()
+    {
+        return boardHeight;
+    }
+}
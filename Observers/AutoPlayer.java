@@ -0,0 +1,116 @@
+package Observers;
+
+import Observables.GameAction;
+import Observables.GameListener;
+import Observables.InputQueue;
+import Observables.Placement;
+import Observables.PlacementSearch;
+import Observables.TetrisGame;
+import Observables.Tetrimino;
+
+/**
+ * A bot that plays a TetrisGame. It is an input source like the Board: it
+ * watches the game, and whenever a new piece appears it searches for the
+ * best place to drop it and queues the rotations, moves and hard drop that
+ * get it there. When the game is lost it acknowledges the loss and starts
+ * the next game.
+ */
+public class AutoPlayer implements GameListener
+{
+    //Attributes
+    private TetrisGame subject;
+    private InputQueue input;
+    private PlacementSearch search;
+    // The piece the last plan was made for.
+    private Tetrimino plannedPiece;
+
+    /**
+     * Constructs a bot that plays a game with the default search.
+     * @param g the game to play.
+     * @param input a queue of the GameLoop running the game that only this bot adds to.
+     */
+    public AutoPlayer( TetrisGame g, InputQueue input )
+    {
+        this( g, input, new PlacementSearch() );
+    }
+
+    /**
+     * Constructs a bot that plays a game.
+     * @param g the game to play.
+     * @param input a queue of the GameLoop running the game that only this bot adds to.
+     * @param search the search used to pick where each piece goes.
+     */
+    public AutoPlayer( TetrisGame g, InputQueue input, PlacementSearch search )
+    {
+        this.subject = g;
+        this.input = input;
+        this.search = search;
+    }
+
+    /**
+     * Starts a game for the bot to play.
+     */
+    public void start()
+    {
+        input.offer( GameAction.START );
+    }
+
+    /**
+     * Plans the next piece whenever a new one has appeared.
+     * @param game the game that changed.
+     */
+    public void gameUpdated( TetrisGame game )
+    {
+        Tetrimino piece = subject.getActivePiece();
+        if( piece != null && piece != plannedPiece && !subject.isGameOver() )
+        {
+            plannedPiece = piece;
+            Placement best = search.findBest( subject.getLockedRowMasks(), subject.getWidth(), piece.getType() );
+            if( best != null )
+            {
+                queueMoves( piece, best );
+            }
+        }
+    }
+
+    /**
+     * Queues the actions that take a piece from where it is to a placement.
+     * Pieces keep their origin when rotated, so the piece is first turned and
+     * then moved sideways before it is dropped.
+     * @param piece the piece to move.
+     * @param target where the piece should go.
+     */
+    private void queueMoves( Tetrimino piece, Placement target )
+    {
+        int turns = ( target.getRotation() - piece.getRotation() + 4 ) % 4;
+        if( turns == 3 )
+        {
+            input.offer( GameAction.ROTATE_CCW );
+        }
+        else
+        {
+            for( int i = 0; i < turns; i++ )
+            {
+                input.offer( GameAction.ROTATE_CW );
+            }
+        }
+        int moves = target.getX() - piece.getX();
+        GameAction move = moves < 0 ? GameAction.LEFT : GameAction.RIGHT;
+        for( int i = 0; i < Math.abs( moves ); i++ )
+        {
+            input.offer( move );
+        }
+        input.offer( GameAction.HARD_DROP );
+    }
+
+    /**
+     * Acknowledges the loss and starts the next game.
+     * @param game the game that was lost.
+     */
+    public void gameLost( TetrisGame game )
+    {
+        plannedPiece = null;
+        input.offer( GameAction.LOSS_ACKNOWLEDGED );
+        input.offer( GameAction.START );
+    }
+}
@@ -1,45 +1,56 @@
 package Observers;
 
-import Observables.Block;
+import Diagnostics.FrameRenderEvent;
+import Observables.BoardSnapshot;
+import Observables.GameAction;
+import Observables.GameListener;
+import Observables.InputQueue;
 import Observables.TetrisGame;
-import java.awt.Color;
-import java.awt.Dimension;
-import java.awt.GridLayout;
+import Observables.Tetrimino;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
-import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 /**
- * Displays a basic tetris gameboard.
+ * Displays a basic tetris gameboard. The board is a GUI adapter for a
+ * TetrisGame, it draws the game whenever it changes and translates key
+ * events into game actions.
  * @author ewillis
  */
-public class Board implements KeyListener
+public class Board implements GameListener, KeyListener
 {
     //Attributes
     private TetrisGame subject;
+    private InputQueue input;
     private JFrame frame;
-    private JButton[][] cells;
-    private JPanel blockPanel;
+    private BoardCanvas canvas;
+    // The version of the board that was last handed to the canvas.
+    private long drawnVersion;
+    // Set when another player, such as an AutoPlayer, acknowledges losses.
+    private volatile boolean watching;
 
     /**
-     * Constructs a board with a rate
-     * @param g
+     * Constructs a board that displays a game and sends the client's
+     * actions to it through an input queue.
+     * @param g the game to display.
+     * @param input the queue of the GameLoop running the game. The board only
+     * adds to it from the event dispatch thread.
      */
-    public Board( TetrisGame g )
+    public Board( TetrisGame g, InputQueue input )
     {
         this.frame = new JFrame("Tetris");
         this.subject = g;
+        this.input = input;
 
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
         // Figure out how many blocks are on the game board.
         int boardHeight = subject.getHeight(), boardWidth = subject.getWidth();
-        cells = new JButton[ boardWidth ][ boardHeight ];
         
-        Object[][] state = subject.getState();
+        BoardSnapshot state = subject.snapshot();
+        drawnVersion = state.getVersion();
         // Draw all of the blocks onto the GUI
         this.drawGUI( boardHeight, boardWidth, state );
 
@@ -51,15 +62,65 @@ public class Board implements KeyListener
 
     /**
      * Gets the state of the subject and redraws the GUI to faithfully represent
-     * the new state of the subject
+     * the new state of the subject. The game may change on its own thread, so
+     * a snapshot of the board is taken here and drawn on the event dispatch thread.
+     * Notifications that leave the board as it was drawn are skipped.
+     * @param game the game that changed.
      */
-    public void Update()
+    public void gameUpdated( TetrisGame game )
     {
-        // Figure out how many blocks are on the game board.
-        int boardHeight = subject.getHeight(), boardWidth = subject.getWidth();
-        Object[][] state = subject.getState();
-        // Draw all of the blocks onto the GUI
-        this.drawGUI( boardHeight, boardWidth, state );
+        // Nothing on the board changed, so neither did the piece or its ghost.
+        if( subject.getBoard().changedSince( drawnVersion ) )
+        {
+            // Figure out how many blocks are on the game board.
+            int boardHeight = subject.getHeight(), boardWidth = subject.getWidth();
+            BoardSnapshot state = subject.snapshot();
+            drawnVersion = state.getVersion();
+            int[] ghost = findGhost();
+            int ghostType = ghost == null ? 0 : subject.getActivePiece().getType();
+            long published = System.nanoTime();
+            // Draw all of the blocks onto the GUI
+            SwingUtilities.invokeLater( () ->
+            {
+                FrameRenderEvent event = new FrameRenderEvent();
+                event.begin();
+                long start = System.nanoTime();
+                this.drawGUI( boardHeight, boardWidth, state );
+                canvas.setGhost( ghost, ghostType );
+                subject.getMetrics().recordRender( start - published, System.nanoTime() - start );
+                event.end();
+                if( event.shouldCommit() )
+                {
+                    event.gameId = subject.getId();
+                    event.sessionId = subject.getSessionId();
+                    event.queuedNanos = start - published;
+                    event.commit();
+                }
+            });
+        }
+    }
+
+    /**
+     * Finds the cells the active piece would land on if it was dropped.
+     * @return the x and y coordinates of the 4 cells one after the other, or
+     * null if there is no active piece.
+     */
+    private int[] findGhost()
+    {
+        int[] answer = null;
+        int landingY = subject.getLandingY();
+        if( landingY >= 0 )
+        {
+            Tetrimino piece = subject.getActivePiece();
+            int drop = landingY - piece.getY();
+            answer = new int[ 8 ];
+            for( int i = 0; i < 4; i++ )
+            {
+                answer[ i * 2 ] = piece.getBlockX( i );
+                answer[ ( i * 2 ) + 1 ] = piece.getBlockY( i ) + drop;
+            }
+        }
+        return answer;
     }
 
     /*
@@ -71,13 +132,88 @@ public class Board implements KeyListener
     }
 
     /**
-     * Handles keyevents for keyreleases
+     * Handles keyevents for keyreleases.
+     * 
+     * The KeyEvent event has associated with it a keycode that corresponds
+     * to the different keys on a standard keyboard. The board responds to
+     * the keys Escape, F11, F12, Enter, Left Arrow, Right Arrow, Down Arrow, Spacebar,
+     * Up Arrow and Right Ctrl.
+     * 
+     * KeyName: Escape      KeyCode: 27  The program will exit.
+     * KeyName: F11         KeyCode: 122 The game's trace is printed to standard error, when tracing is on.
+     * KeyName: F12         KeyCode: 123 The game's metrics are printed to standard error.
+     * KeyName: Enter       KeyCode: 10  START
+     * KeyName: Left Arrow  KeyCode: 37  LEFT
+     * KeyName: Right Arrow KeyCode: 39  RIGHT
+     * KeyName: Down Arrow  KeyCode: 40  SOFT_DROP
+     * KeyName: Spacebar    KeyCode: 32  HARD_DROP
+     * KeyName: Up Arrow    KeyCode: 38  ROTATE_CW
+     * KeyName: Right Ctrl  KeyCode: 17  ROTATE_CCW
      */
     public void keyReleased(KeyEvent e)
     {
-        // false denotes that this was a keyreleased event.
-        subject.respond( e, false );
+        int keyCode = e.getKeyCode();
+        if( keyCode == KeyEvent.VK_ESCAPE )
+        {
+            System.exit(1);
+        }
+        if( keyCode == KeyEvent.VK_F11 && subject.getTrace() != null )
+        {
+            subject.getTrace().dumpTo( System.err );
+        }
+        if( keyCode == KeyEvent.VK_F12 )
+        {
+            System.err.print( subject.getMetrics().toText() );
+        }
+        GameAction action = toAction( keyCode );
+        if( action != null )
+        {
+            input.offer( action );
+        }
+    }
 
+    /**
+     * Finds the game action for a key.
+     * @param keyCode the key code of a key event.
+     * @return the action bound to the key, or null if the key is not bound.
+     */
+    private GameAction toAction( int keyCode )
+    {
+        GameAction answer;
+        if( keyCode == KeyEvent.VK_ENTER )
+        {
+            answer = GameAction.START;
+        }
+        else if( keyCode == KeyEvent.VK_LEFT )
+        {
+            answer = GameAction.LEFT;
+        }
+        else if( keyCode == KeyEvent.VK_RIGHT )
+        {
+            answer = GameAction.RIGHT;
+        }
+        else if( keyCode == KeyEvent.VK_DOWN )
+        {
+            answer = GameAction.SOFT_DROP;
+        }
+        else if( keyCode == KeyEvent.VK_SPACE )
+        {
+            answer = GameAction.HARD_DROP;
+        }
+        else if( keyCode == KeyEvent.VK_UP )
+        {
+            answer = GameAction.ROTATE_CW;
+        }
+        else if( keyCode == KeyEvent.VK_CONTROL )
+        {
+            answer = GameAction.ROTATE_CCW;
+        }
+        else
+        {
+            // ignore extraneous input
+            answer = null;
+        }
+        return answer;
     }
 
     /**
@@ -89,54 +225,51 @@ public class Board implements KeyListener
 
     /**
      * Draws the Tetris Board and all blocks on the board as it currently exists.
+     * Only the cells that changed since the last draw are repainted.
      */
-    private void drawGUI( int boardHeight, int boardWidth, Object[][] state )
+    private void drawGUI( int boardHeight, int boardWidth, BoardSnapshot state )
     {
-        // add each cell to the block panel
-        if(blockPanel == null)
+        if( canvas == null )
         {
-            blockPanel = new JPanel( new GridLayout( boardHeight, boardWidth ) );
-            // make sure that the panel has keyboard focus
-            
+            canvas = new BoardCanvas( boardWidth, boardHeight );
+            // add the canvas to the frame and make sure that it has keyboard focus
+            frame.getContentPane().add( canvas );
+            frame.setFocusable( true );
+            frame.addKeyListener( this );
+            canvas.setFocusable( true );
+            canvas.addKeyListener( this );
         }
+        canvas.setCells( state );
+    }
 
-        for( int y = 0; y < boardHeight; y++ )
-        {
-            for( int x = 0; x < boardWidth; x++ )
-            {
-                if( cells[x][y] == null )
-                {
-                     cells[x][y] = new JButton();
-                     cells[x][y].setFocusable(true);
-                     cells[x][y].addKeyListener( this );
-                     cells[x][y].setPreferredSize( new Dimension(30, 30) );
-                }
-                cells[x][y].setBackground( (Color)state[ x ][ y ] );
-                
-                blockPanel.add( cells[x][y] );
-            }
-        }
-        
-        // add the block panel to the frame.
-        frame.getContentPane().add(blockPanel);
-        frame.setFocusable( true );
-        frame.addKeyListener( this );
-        blockPanel.setFocusable( true );
-        blockPanel.addKeyListener( this );
+    /**
+     * Sets whether the board only watches a game someone else plays. A
+     * watching board leaves acknowledging a loss to that player.
+     * @param watching true if another player acknowledges losses.
+     */
+    public void setWatching( boolean watching )
+    {
+        this.watching = watching;
     }
 
     /**
-     * Displays a dialog telling the client they have lost.
+     * Displays a dialog telling the client they have lost. Once the client
+     * acknowledges the dialog the game is told so. A watching board does
+     * neither.
+     * @param game the game that was lost.
      */
-    public void displayLossNotification()
+    public void gameLost( TetrisGame game )
     {
-        JOptionPane pane = new JOptionPane();
-        pane.showMessageDialog( frame, "You have run out of space to place tetriminoes. Game Over.");
-        while( pane.getValue() == JOptionPane.UNINITIALIZED_VALUE)
+        if( !watching )
         {
-
+            // The loss is found while the game is still handling an action, so
+            // the dialog is shown once that action has finished.
+            SwingUtilities.invokeLater( () ->
+            {
+                // showMessageDialog is modal and returns once the client acknowledges it.
+                JOptionPane.showMessageDialog( frame, "You have run out of space to place tetriminoes. Game Over.");
+                input.offer( GameAction.LOSS_ACKNOWLEDGED );
+            });
         }
-        //fire a key event with code 242
-        new KeyEvent( frame, 1, System.currentTimeMillis(), KeyEvent.ALT_DOWN_MASK, 242, KeyEvent.CHAR_UNDEFINED);
     }
 }
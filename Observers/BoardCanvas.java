@@ -0,0 +1,175 @@
+package Observers;
+
+import Observables.BoardSnapshot;
+import Observables.Playfield;
+import Observables.Tetrimino;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import javax.swing.JComponent;
+
+/**
+ * Paints the cells of a tetris board. Each cell is drawn from a tile image
+ * that is rendered once per kind of cell and cached. When a new snapshot of
+ * the board is given only the cells that changed since the last frame are
+ * repainted, rows the snapshots share are skipped without looking at them.
+ */
+public class BoardCanvas extends JComponent
+{
+    //Attributes
+    private static final long serialVersionUID = 1L;
+    private static final int CELL_SIZE = 30;
+    private static final Color BACKGROUND_COLOR = new Color( 127, 127, 127 );
+    private static final Color GARBAGE_COLOR = new Color( 64, 64, 64 );
+    private int boardWidth, boardHeight;
+    // The board as it was last handed to this canvas.
+    private BoardSnapshot cells;
+    // The tile of every kind of cell, indexed by the cell's value.
+    private BufferedImage[] tiles;
+    // The cells where the active piece would land, x and y one after the
+    // other, outlined in the color of the piece.
+    private int[] ghost;
+    private Color ghostColor;
+
+    /**
+     * Creates a canvas for a board of the given size. Nothing is painted
+     * until the cells are first set.
+     * @param boardWidth the width of the board in cells.
+     * @param boardHeight the height of the board in cells.
+     */
+    public BoardCanvas( int boardWidth, int boardHeight )
+    {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        tiles = new BufferedImage[ Playfield.GARBAGE + 1 ];
+        setOpaque( true );
+        setPreferredSize( new Dimension( boardWidth * CELL_SIZE, boardHeight * CELL_SIZE ) );
+    }
+
+    /**
+     * Takes a new snapshot of the board and schedules a repaint of every
+     * cell that differs from the last frame.
+     * @param state the board to draw.
+     */
+    public void setCells( BoardSnapshot state )
+    {
+        for( int y = 0; y < boardHeight; y++ )
+        {
+            if( cells == null )
+            {
+                repaint( 0, y * CELL_SIZE, boardWidth * CELL_SIZE, CELL_SIZE );
+            }
+            else if( !state.sameRow( cells, y ) )
+            {
+                for( int x = 0; x < boardWidth; x++ )
+                {
+                    if( state.getCell( x, y ) != cells.getCell( x, y ) )
+                    {
+                        repaint( x * CELL_SIZE, y * CELL_SIZE, CELL_SIZE, CELL_SIZE );
+                    }
+                }
+            }
+        }
+        cells = state;
+    }
+
+    /**
+     * Takes the cells where the active piece would land and schedules a
+     * repaint of the old and new ghost cells if they moved.
+     * @param cells the x and y coordinates of the 4 cells one after the other,
+     * or null to show no ghost.
+     * @param pieceType the type of the active piece.
+     */
+    public void setGhost( int[] cells, int pieceType )
+    {
+        if( !Arrays.equals( cells, ghost ) )
+        {
+            repaintCells( ghost );
+            ghost = cells;
+            ghostColor = cells == null ? null : Tetrimino.findColor( pieceType );
+            repaintCells( ghost );
+        }
+    }
+
+    /**
+     * Schedules a repaint of the given cells.
+     * @param cells the x and y coordinates of the cells one after the other, or null.
+     */
+    private void repaintCells( int[] cells )
+    {
+        for( int i = 0; cells != null && i < cells.length; i += 2 )
+        {
+            repaint( cells[ i ] * CELL_SIZE, cells[ i + 1 ] * CELL_SIZE, CELL_SIZE, CELL_SIZE );
+        }
+    }
+
+    /**
+     * Paints the cells that intersect the clip of the graphics.
+     * @param g the graphics to paint with.
+     */
+    @Override
+    protected void paintComponent( Graphics g )
+    {
+        Rectangle clip = g.getClipBounds();
+        if( clip == null )
+        {
+            clip = new Rectangle( 0, 0, getWidth(), getHeight() );
+        }
+        // Only visit the cells inside the clip.
+        int firstX = Math.max( 0, clip.x / CELL_SIZE );
+        int firstY = Math.max( 0, clip.y / CELL_SIZE );
+        int lastX = Math.min( boardWidth - 1, ( clip.x + clip.width - 1 ) / CELL_SIZE );
+        int lastY = Math.min( boardHeight - 1, ( clip.y + clip.height - 1 ) / CELL_SIZE );
+        for( int x = firstX; x <= lastX && cells != null; x++ )
+        {
+            for( int y = firstY; y <= lastY; y++ )
+            {
+                g.drawImage( getTile( cells.getCell( x, y ) ), x * CELL_SIZE, y * CELL_SIZE, null );
+            }
+        }
+        // The ghost is outlined on the cells that are still empty, the piece
+        // itself covers the rest.
+        for( int i = 0; ghost != null && cells != null && i < ghost.length; i += 2 )
+        {
+            if( cells.getCell( ghost[ i ], ghost[ i + 1 ] ) == Playfield.EMPTY )
+            {
+                g.setColor( ghostColor );
+                g.drawRect( ghost[ i ] * CELL_SIZE + 2, ghost[ i + 1 ] * CELL_SIZE + 2, CELL_SIZE - 5, CELL_SIZE - 5 );
+            }
+        }
+    }
+
+    /**
+     * Gets the tile image for a kind of cell, rendering it the first time
+     * the kind is seen.
+     * @param cell the value of the cell, see Playfield.
+     * @return the image of a single cell.
+     */
+    private BufferedImage getTile( byte cell )
+    {
+        BufferedImage tile = tiles[ cell ];
+        if( tile == null )
+        {
+            Color color = cell == Playfield.EMPTY ? BACKGROUND_COLOR
+                        : cell == Playfield.GARBAGE ? GARBAGE_COLOR : Tetrimino.findColor( cell - 1 );
+            tile = new BufferedImage( CELL_SIZE, CELL_SIZE, BufferedImage.TYPE_INT_RGB );
+            Graphics2D g = tile.createGraphics();
+            g.setColor( color );
+            g.fillRect( 0, 0, CELL_SIZE, CELL_SIZE );
+            // Raised edges so that neighbouring cells of the same color stay apart.
+            g.setColor( color.brighter() );
+            g.drawLine( 0, 0, CELL_SIZE - 1, 0 );
+            g.drawLine( 0, 0, 0, CELL_SIZE - 1 );
+            g.setColor( color.darker() );
+            g.drawLine( 0, CELL_SIZE - 1, CELL_SIZE - 1, CELL_SIZE - 1 );
+            g.drawLine( CELL_SIZE - 1, 0, CELL_SIZE - 1, CELL_SIZE - 1 );
+            g.dispose();
+            tiles[ cell ] = tile;
+        }
+        return tile;
+    }
+}
@@ -0,0 +1,593 @@
+package Server;
+
+import Observables.GameAction;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many independent games in one JVM.
+ *
+ * Sessions are spread over a small number of lanes. Each lane is a task
+ * that a scheduled executor runs once per tick, and it advances every session
+ * it owns, so tens of thousands of sessions share a thread per core instead
+ * of a thread each. A single network thread serves every client over
+ * localhost TCP with a line based protocol:
+ *
+ * NEW                 creates a session, answers OK id
+ * ACT id action       queues a GameAction such as START or LEFT, answers OK id
+ * STATE id            answers STATE id width height rows, where rows holds a
+ *                     '.' or '#' per cell and separates rows with '/'
+ * STATS id            answers the resources the session used
+ * METRICS id          answers the latencies and throughput of the game as JSON
+ * VERSUS id other     pits two sessions against each other, line clears in
+ *                     one send garbage rows to the other, answers OK id
+ * CLOSE id            closes a session, answers OK id
+ *
+ * Anything else is answered with ERR and a reason, and a line longer than
+ * 256 bytes with ERR line too long. Once the server drains
+ * it refuses new sessions, closes every session whose game is over, and
+ * stops when all sessions are closed or the drain times out.
+ */
+public class GameServer implements Runnable
+{
+    public static final int DEFAULT_PORT = 7777;
+    private static final int BOARD_WIDTH = 10, BOARD_HEIGHT = 18;
+    private static final GameAction[] ACTIONS = GameAction.values();
+    // The longest line a client may send, the rest of a longer line is thrown away.
+    private static final int MAX_LINE = 256;
+    // Answers a client has not read yet, beyond which it is disconnected.
+    private static final int MAX_PENDING_OUT = 64 * 1024;
+
+    //Attributes
+    private final int port;
+    private final ScheduledExecutorService scheduler;
+    private final Lane[] lanes;
+    private final ArrayList<ScheduledFuture<?>> laneTasks = new ArrayList<ScheduledFuture<?>>();
+    private final ConcurrentHashMap<Integer, GameSession> sessions = new ConcurrentHashMap<Integer, GameSession>();
+    private final AtomicInteger nextId = new AtomicInteger( 1 );
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running, draining;
+    private long drainDeadline;
+
+    /**
+     * Creates a server with a lane per available processor.
+     * @param port the localhost port clients connect to.
+     */
+    public GameServer( int port )
+    {
+        this( port, Runtime.getRuntime().availableProcessors() );
+    }
+
+    /**
+     * Creates a server.
+     * @param port the localhost port clients connect to.
+     * @param laneCount the number of threads advancing sessions.
+     */
+    public GameServer( int port, int laneCount )
+    {
+        this.port = port;
+        this.scheduler = Executors.newScheduledThreadPool( laneCount );
+        this.lanes = new Lane[ laneCount ];
+        for( int i = 0; i < laneCount; i++ )
+        {
+            lanes[ i ] = new Lane( sessions );
+        }
+    }
+
+    /**
+     * Opens the port and starts the lanes.
+     * @throws IOException if the port cannot be opened.
+     */
+    public void open() throws IOException
+    {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind( new InetSocketAddress( "127.0.0.1", port ) );
+        serverChannel.configureBlocking( false );
+        serverChannel.register( selector, SelectionKey.OP_ACCEPT );
+        long tickNanos = 1000000000L / 60;
+        for( Lane lane : lanes )
+        {
+            laneTasks.add( scheduler.scheduleAtFixedRate( lane, 0, tickNanos, TimeUnit.NANOSECONDS ) );
+        }
+        running = true;
+    }
+
+    /**
+     * Serves clients until the server has drained.
+     */
+    public void run()
+    {
+        try
+        {
+            while( running )
+            {
+                selector.select( 100 );
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while( keys.hasNext() )
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if( key.isValid() && key.isAcceptable() )
+                    {
+                        accept();
+                    }
+                    else
+                    {
+                        if( key.isValid() && key.isReadable() )
+                        {
+                            read( key );
+                        }
+                        if( key.isValid() && key.isWritable() )
+                        {
+                            flush( key );
+                        }
+                    }
+                }
+                if( draining )
+                {
+                    checkDrained();
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            shutdown();
+        }
+    }
+
+    /**
+     * Starts draining the server. May be called from any thread.
+     * @param timeoutMillis how long sessions whose game is not over may keep running.
+     */
+    public void drain( long timeoutMillis )
+    {
+        drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( timeoutMillis );
+        draining = true;
+        if( selector != null )
+        {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Stops accepting connections, closes the sessions that are over and
+     * stops once all are closed or the drain timed out.
+     */
+    private void checkDrained()
+    {
+        if( serverChannel.isOpen() )
+        {
+            // Refuse new connections, the clients already connected stay served.
+            serverChannel.keyFor( selector ).cancel();
+            try
+            {
+                serverChannel.close();
+            }
+            catch( IOException e )
+            {
+                // the port is released when the server shuts down
+            }
+        }
+        boolean timedOut = System.nanoTime() - drainDeadline >= 0;
+        for( GameSession session : sessions.values() )
+        {
+            if( timedOut || session.isOver() )
+            {
+                closeSession( session );
+            }
+        }
+        if( sessions.isEmpty() )
+        {
+            running = false;
+        }
+    }
+
+    /**
+     * Stops the lanes and closes every connection.
+     */
+    private void shutdown()
+    {
+        for( ScheduledFuture<?> task : laneTasks )
+        {
+            task.cancel( false );
+        }
+        scheduler.shutdown();
+        try
+        {
+            for( SelectionKey key : selector.keys() )
+            {
+                key.channel().close();
+            }
+            selector.close();
+        }
+        catch( IOException e )
+        {
+            // nothing left to do with a connection that will not close
+        }
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel client = serverChannel.accept();
+        if( client != null )
+        {
+            client.configureBlocking( false );
+            client.register( selector, SelectionKey.OP_READ, new Connection() );
+        }
+    }
+
+    /**
+     * Reads what a client sent and answers every complete line.
+     */
+    private void read( SelectionKey key )
+    {
+        SocketChannel client = (SocketChannel)key.channel();
+        Connection connection = (Connection)key.attachment();
+        try
+        {
+            if( client.read( connection.in ) < 0 )
+            {
+                disconnect( key );
+            }
+            else
+            {
+                connection.in.flip();
+                StringBuilder line = connection.line;
+                while( connection.in.hasRemaining() && key.isValid() )
+                {
+                    char c = (char)connection.in.get();
+                    if( c == '\n' )
+                    {
+                        if( !connection.overlong )
+                        {
+                            reply( key, handle( line.toString().trim(), line.length() + 1 ) );
+                        }
+                        connection.overlong = false;
+                        line.setLength( 0 );
+                    }
+                    else if( connection.overlong )
+                    {
+                        // skipped up to the end of the line
+                    }
+                    else if( line.length() < MAX_LINE )
+                    {
+                        line.append( c );
+                    }
+                    else
+                    {
+                        reply( key, "ERR line too long" );
+                        connection.overlong = true;
+                        line.setLength( 0 );
+                    }
+                }
+                connection.in.clear();
+                if( key.isValid() )
+                {
+                    flush( key );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            disconnect( key );
+        }
+    }
+
+    /**
+     * Queues an answer for a client. A client that lets too many answers
+     * pile up without reading them is disconnected.
+     * @param key the key of the client's connection.
+     * @param answer the answer without its line break.
+     */
+    private void reply( SelectionKey key, String answer )
+    {
+        Connection connection = (Connection)key.attachment();
+        byte[] bytes = ( answer + "\n" ).getBytes( StandardCharsets.US_ASCII );
+        if( connection.out.remaining() < bytes.length )
+        {
+            int needed = connection.out.position() + bytes.length;
+            if( needed > MAX_PENDING_OUT )
+            {
+                disconnect( key );
+            }
+            else
+            {
+                int capacity = connection.out.capacity();
+                while( capacity < needed )
+                {
+                    capacity *= 2;
+                }
+                ByteBuffer grown = ByteBuffer.allocate( capacity );
+                connection.out.flip();
+                grown.put( connection.out );
+                connection.out = grown;
+            }
+        }
+        if( key.isValid() )
+        {
+            connection.out.put( bytes );
+        }
+    }
+
+    /**
+     * Writes as much of a client's answers as the connection takes, and
+     * waits for the connection to take more while any are left.
+     */
+    private void flush( SelectionKey key )
+    {
+        SocketChannel client = (SocketChannel)key.channel();
+        Connection connection = (Connection)key.attachment();
+        try
+        {
+            connection.out.flip();
+            client.write( connection.out );
+            connection.out.compact();
+            if( connection.out.position() > 0 )
+            {
+                key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+            }
+            else
+            {
+                key.interestOps( SelectionKey.OP_READ );
+            }
+        }
+        catch( IOException e )
+        {
+            disconnect( key );
+        }
+    }
+
+    private void disconnect( SelectionKey key )
+    {
+        key.cancel();
+        try
+        {
+            key.channel().close();
+        }
+        catch( IOException e )
+        {
+            // the connection is gone either way
+        }
+    }
+
+    /**
+     * Answers a single line of the protocol.
+     * @param line the line without its line break.
+     * @param bytesIn the bytes received for the line, counted against its session.
+     * @return the answer without its line break.
+     */
+    private String handle( String line, int bytesIn )
+    {
+        String[] words = line.split( " " );
+        String answer;
+        if( words[ 0 ].equals( "NEW" ) )
+        {
+            answer = draining ? "ERR draining" : "OK " + newSession().getId();
+        }
+        else if( words.length < 2 )
+        {
+            answer = "ERR unknown command";
+        }
+        else
+        {
+            GameSession session = null;
+            try
+            {
+                session = sessions.get( Integer.parseInt( words[ 1 ] ) );
+            }
+            catch( NumberFormatException e )
+            {
+                // answered as an unknown session below
+            }
+            if( session == null )
+            {
+                answer = "ERR no session " + words[ 1 ];
+            }
+            else
+            {
+                answer = handle( session, words );
+                session.countBytes( bytesIn, answer.length() + 1 );
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Answers a line of the protocol addressed to a session.
+     */
+    private String handle( GameSession session, String[] words )
+    {
+        String answer;
+        if( words[ 0 ].equals( "ACT" ) && words.length > 2 )
+        {
+            GameAction action = null;
+            for( GameAction a : ACTIONS )
+            {
+                if( a.name().equals( words[ 2 ] ) )
+                {
+                    action = a;
+                }
+            }
+            if( action == null )
+            {
+                answer = "ERR unknown action " + words[ 2 ];
+            }
+            else
+            {
+                answer = session.offer( action ) ? "OK " + session.getId() : "ERR input full";
+            }
+        }
+        else if( words[ 0 ].equals( "STATE" ) )
+        {
+            answer = session.describeState();
+        }
+        else if( words[ 0 ].equals( "STATS" ) )
+        {
+            answer = session.describeStats( System.nanoTime() );
+        }
+        else if( words[ 0 ].equals( "METRICS" ) )
+        {
+            answer = session.describeMetrics();
+        }
+        else if( words[ 0 ].equals( "VERSUS" ) && words.length > 2 )
+        {
+            GameSession other = null;
+            try
+            {
+                other = sessions.get( Integer.parseInt( words[ 2 ] ) );
+            }
+            catch( NumberFormatException e )
+            {
+                // answered as an unknown session below
+            }
+            if( other == null )
+            {
+                answer = "ERR no session " + words[ 2 ];
+            }
+            else
+            {
+                answer = GameSession.pair( session, other ) ? "OK " + session.getId() : "ERR already paired";
+            }
+        }
+        else if( words[ 0 ].equals( "CLOSE" ) )
+        {
+            closeSession( session );
+            answer = "OK " + session.getId();
+        }
+        else
+        {
+            answer = "ERR unknown command";
+        }
+        return answer;
+    }
+
+    /**
+     * Creates a session and hands it to the lane with the fewest sessions.
+     * @return the new session.
+     */
+    public GameSession newSession()
+    {
+        GameSession session = new GameSession( nextId.getAndIncrement(), BOARD_WIDTH, BOARD_HEIGHT, System.nanoTime() );
+        sessions.put( session.getId(), session );
+        Lane lane = lanes[ 0 ];
+        for( Lane other : lanes )
+        {
+            if( other.size.get() < lane.size.get() )
+            {
+                lane = other;
+            }
+        }
+        lane.add( session );
+        return session;
+    }
+
+    private void closeSession( GameSession session )
+    {
+        session.close();
+        sessions.remove( session.getId() );
+    }
+
+    /**
+     *
+     * @return Returns the number of open sessions.
+     */
+    public int getSessionCount()
+    {
+        return sessions.size();
+    }
+
+    /**
+     * The sessions advanced by one thread at a time. New sessions are handed
+     * over through a queue and closed sessions are dropped as the lane
+     * passes them, so the lane's own list is never shared. A session whose
+     * game breaks is closed and taken out of the server's sessions by the
+     * lane itself.
+     */
+    private static class Lane implements Runnable
+    {
+        private final ConcurrentLinkedQueue<GameSession> added = new ConcurrentLinkedQueue<GameSession>();
+        private final ArrayList<GameSession> owned = new ArrayList<GameSession>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final ConcurrentHashMap<Integer, GameSession> sessions;
+
+        Lane( ConcurrentHashMap<Integer, GameSession> sessions )
+        {
+            this.sessions = sessions;
+        }
+
+        void add( GameSession session )
+        {
+            size.incrementAndGet();
+            added.add( session );
+        }
+
+        public void run()
+        {
+            GameSession session;
+            while( ( session = added.poll() ) != null )
+            {
+                owned.add( session );
+            }
+            long now = System.nanoTime();
+            for( int i = owned.size() - 1; i >= 0; i-- )
+            {
+                session = owned.get( i );
+                if( session.isClosed() )
+                {
+                    // Swap the last session in, the order does not matter.
+                    owned.set( i, owned.get( owned.size() - 1 ) );
+                    owned.remove( owned.size() - 1 );
+                    size.decrementAndGet();
+                }
+                else
+                {
+                    try
+                    {
+                        session.advance( now );
+                    }
+                    catch( RuntimeException e )
+                    {
+                        // One broken game must not stop the rest of the lane.
+                        e.printStackTrace();
+                        session.close();
+                        sessions.remove( session.getId(), session );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The buffers of a client connection.
+     */
+    private static class Connection
+    {
+        private final ByteBuffer in = ByteBuffer.allocate( 1024 );
+        private final StringBuilder line = new StringBuilder( MAX_LINE );
+        // Set while the rest of a line that was too long is skipped.
+        private boolean overlong;
+        // Answers not written yet, in write mode.
+        private ByteBuffer out = ByteBuffer.allocate( 1024 );
+    }
+}
@@ -0,0 +1,253 @@
+package Server;
+
+import Observables.GameAction;
+import Observables.GameListener;
+import Observables.GarbageSender;
+import Observables.GameLoop;
+import Observables.InputQueue;
+import Observables.TetrisGame;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One game hosted by a GameServer. A session is advanced by a single lane
+ * thread of the server, and only that thread touches the game. Other threads
+ * talk to the session through its input queue, whose single producer is the
+ * server's network thread, and read the frame the session publishes after
+ * every tick that changed the game.
+ *
+ * The session also accounts for the resources it uses: the ticks it ran,
+ * the time spent running them and the input and output it caused.
+ */
+public class GameSession implements GameListener
+{
+    //Attributes
+    private final int id;
+    private final TetrisGame game;
+    private final GameLoop loop;
+    private final InputQueue input;
+    private final long createdAt;
+    private boolean changed;
+    private volatile boolean closed, over;
+    private volatile byte[] frame;
+    // Sends garbage to the opposing session in versus mode, set once by the network thread.
+    private volatile GarbageSender versus;
+    private volatile int opponentId;
+    // Accounting, each counter has a single writer.
+    private volatile long ticks, tickNanos, inputs, bytesIn, bytesOut;
+
+    /**
+     * Creates a session with a new game on a board of the given size.
+     * @param id the id clients use for the session.
+     * @param boardWidth the width of the board.
+     * @param boardHeight the height of the board.
+     * @param now the System.nanoTime the first tick is due at.
+     */
+    public GameSession( int id, int boardWidth, int boardHeight, long now )
+    {
+        this.id = id;
+        this.game = new TetrisGame( boardHeight, boardWidth );
+        game.setSessionId( id );
+        this.loop = new GameLoop( game );
+        this.input = loop.getInputQueue();
+        this.createdAt = now;
+        loop.setNextTickTime( now );
+        game.attach( this );
+        publishFrame();
+    }
+
+    /**
+     * Runs the ticks of the game that are due. Called by the session's lane.
+     * @param now the current System.nanoTime.
+     */
+    void advance( long now )
+    {
+        long start = System.nanoTime();
+        int ran = loop.advance( now );
+        if( changed )
+        {
+            changed = false;
+            publishFrame();
+        }
+        if( ran > 0 )
+        {
+            ticks += ran;
+            tickNanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Queues an action from the client. Called by the server's network thread.
+     * @param action the action.
+     * @return true if the action was queued, false if the queue was full.
+     */
+    boolean offer( GameAction action )
+    {
+        inputs++;
+        return input.offer( action );
+    }
+
+    /**
+     * Records network traffic of the session. Called by the server's network thread.
+     * @param in the number of bytes received.
+     * @param out the number of bytes sent.
+     */
+    void countBytes( long in, long out )
+    {
+        bytesIn += in;
+        bytesOut += out;
+    }
+
+    /**
+     * Copies the board into a new frame for other threads to read. Each
+     * cell is a '.' when empty and a '#' when it holds a block, rows are
+     * separated by '/'.
+     */
+    private void publishFrame()
+    {
+        int width = game.getWidth(), height = game.getHeight();
+        int[] rows = game.getRowMasks();
+        byte[] bytes = new byte[ height * ( width + 1 ) - 1 ];
+        int i = 0;
+        for( int y = 0; y < height; y++ )
+        {
+            if( y > 0 )
+            {
+                bytes[ i++ ] = '/';
+            }
+            for( int x = 0; x < width; x++ )
+            {
+                bytes[ i++ ] = ( rows[ y ] & ( 1 << x ) ) != 0 ? (byte)'#' : (byte)'.';
+            }
+        }
+        frame = bytes;
+    }
+
+    /**
+     * Marks the game as changed so that a new frame is published after the
+     * tick. A game that was lost and started again is no longer over.
+     * @param g the game that changed.
+     */
+    public void gameUpdated( TetrisGame g )
+    {
+        changed = true;
+        if( over && !g.isGameOver() )
+        {
+            over = false;
+        }
+    }
+
+    /**
+     * Sends garbage for the cleared lines to the opponent, if there is one.
+     * Called on the session's lane.
+     * @param g the game the lines were cleared in.
+     * @param rows the y coordinates the lines had.
+     */
+    @Override
+    public void linesCleared( TetrisGame g, int[] rows )
+    {
+        GarbageSender sender = versus;
+        if( sender != null )
+        {
+            sender.linesCleared( g, rows );
+        }
+    }
+
+    /**
+     * Pits two sessions against each other, from now on each sends its
+     * garbage to the other's mailbox. The sessions may run on different
+     * lanes, the mailboxes let them exchange garbage without locking.
+     * Called by the server's network thread.
+     * @param a one session.
+     * @param b the other session.
+     * @return false if either session already has an opponent.
+     */
+    static boolean pair( GameSession a, GameSession b )
+    {
+        boolean answer = false;
+        if( a != b && a.versus == null && b.versus == null )
+        {
+            a.opponentId = b.id;
+            b.opponentId = a.id;
+            a.versus = new GarbageSender( b.game.getGarbageMailbox(), ( (long)a.id << 32 ) | b.id );
+            b.versus = new GarbageSender( a.game.getGarbageMailbox(), ( (long)b.id << 32 ) | a.id );
+            answer = true;
+        }
+        return answer;
+    }
+
+    /**
+     * Marks the session as over, a draining server closes it.
+     * @param g the game that was lost.
+     */
+    public void gameLost( TetrisGame g )
+    {
+        over = true;
+    }
+
+    /**
+     * Closes the session, its lane stops advancing it.
+     */
+    void close()
+    {
+        closed = true;
+        game.closeChanges();
+    }
+
+    /**
+     *
+     * @return Returns true once the session was closed.
+     */
+    boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     *
+     * @return Returns true while the game of the session is lost and not started again.
+     */
+    boolean isOver()
+    {
+        return over;
+    }
+
+    /**
+     *
+     * @return Returns the id clients use for the session.
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * Describes the latest frame as a line of the protocol.
+     * @return the STATE line without the line break.
+     */
+    String describeState()
+    {
+        return "STATE " + id + " " + game.getWidth() + " " + game.getHeight() + " "
+             + new String( frame, StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Describes the latencies and throughput of the session's game as a line of the protocol.
+     * @return the METRICS line without the line break.
+     */
+    String describeMetrics()
+    {
+        return "METRICS " + id + " " + game.getMetrics().toJson();
+    }
+
+    /**
+     * Describes the resources the session used as a line of the protocol.
+     * @param now the current System.nanoTime.
+     * @return the STATS line without the line break.
+     */
+    String describeStats( long now )
+    {
+        return "STATS " + id + " ageMs=" + ( ( now - createdAt ) / 1000000 ) + " ticks=" + ticks
+             + " tickNanos=" + tickNanos + " inputs=" + inputs + " dropped=" + input.getDroppedCount()
+             + " bytesIn=" + bytesIn + " bytesOut=" + bytesOut + " over=" + over + " opponent=" + opponentId;
+    }
+}
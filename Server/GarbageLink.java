@@ -0,0 +1,239 @@
+package Server;
+
+import Observables.GameListener;
+import Observables.GarbageMailbox;
+import Observables.GarbageSender;
+import Observables.TetrisGame;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pits a game against a game in another process over a localhost socket.
+ *
+ * The link is attached to the local game as a listener. When the game
+ * clears lines the link offers the garbage to an outgoing mailbox and wakes
+ * its writer thread, which sends it. Its reader thread offers the garbage
+ * the opponent sends to the game's own mailbox, which the game drains at
+ * the start of every tick. The game's thread never touches the socket and
+ * never waits on either thread.
+ *
+ * Each garbage batch is sent as two bytes: the number of rows and the
+ * column of their hole.
+ */
+public class GarbageLink implements GameListener
+{
+    //Attributes
+    private final SocketChannel channel;
+    private final TetrisGame game;
+    private final GarbageMailbox outgoing = new GarbageMailbox();
+    private final SplittableRandom holes;
+    private final Thread reader, writer;
+    private volatile boolean open = true;
+    private volatile long linesSent, linesReceived;
+
+    /**
+     * Creates a link over a connected channel. The threads start with start.
+     * @param channel the connection to the opponent, in blocking mode.
+     * @param game the local game.
+     * @param seed the seed the holes of the garbage sent are picked with.
+     */
+    public GarbageLink( SocketChannel channel, TetrisGame game, long seed )
+    {
+        this.channel = channel;
+        this.game = game;
+        this.holes = new SplittableRandom( seed );
+        this.reader = new Thread( this::read, "GarbageLink-reader" );
+        this.writer = new Thread( this::write, "GarbageLink-writer" );
+        reader.setDaemon( true );
+        writer.setDaemon( true );
+    }
+
+    /**
+     * Waits for the opponent to connect.
+     * @param port the localhost port to listen on.
+     * @param game the local game.
+     * @return the link, not started yet.
+     * @throws IOException if the port cannot be opened.
+     */
+    public static GarbageLink listen( int port, TetrisGame game ) throws IOException
+    {
+        try( ServerSocketChannel server = ServerSocketChannel.open() )
+        {
+            server.bind( new InetSocketAddress( "127.0.0.1", port ) );
+            SocketChannel channel = server.accept();
+            channel.socket().setTcpNoDelay( true );
+            return new GarbageLink( channel, game, port );
+        }
+    }
+
+    /**
+     * Connects to an opponent waiting with listen.
+     * @param port the localhost port the opponent listens on.
+     * @param game the local game.
+     * @return the link, not started yet.
+     * @throws IOException if the opponent cannot be reached.
+     */
+    public static GarbageLink connect( int port, TetrisGame game ) throws IOException
+    {
+        SocketChannel channel = SocketChannel.open( new InetSocketAddress( "127.0.0.1", port ) );
+        channel.socket().setTcpNoDelay( true );
+        return new GarbageLink( channel, game, ~(long)port );
+    }
+
+    /**
+     * Starts exchanging garbage.
+     */
+    public void start()
+    {
+        reader.start();
+        writer.start();
+    }
+
+    /**
+     * Closes the connection, both threads stop.
+     */
+    public void close()
+    {
+        open = false;
+        LockSupport.unpark( writer );
+        try
+        {
+            channel.close();
+        }
+        catch( IOException e )
+        {
+            // the connection is gone either way
+        }
+    }
+
+    /**
+     * Offers the garbage for the cleared lines to the writer. Called on the
+     * game's thread.
+     * @param g the game the lines were cleared in.
+     * @param rows the y coordinates the lines had.
+     */
+    @Override
+    public void linesCleared( TetrisGame g, int[] rows )
+    {
+        int lines = GarbageSender.garbageFor( rows.length );
+        if( lines > 0 && outgoing.offer( lines, holes.nextInt( g.getWidth() ) ) )
+        {
+            LockSupport.unpark( writer );
+        }
+    }
+
+    /**
+     * Garbage is only sent for cleared lines.
+     * @param g the game that changed.
+     */
+    public void gameUpdated( TetrisGame g )
+    {
+    }
+
+    /**
+     * The link stays open, the opponent may still be playing.
+     * @param g the game that was lost.
+     */
+    public void gameLost( TetrisGame g )
+    {
+    }
+
+    /**
+     * Sends the garbage offered by the game, sleeping while there is none.
+     */
+    private void write()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( GarbageMailbox.DEFAULT_CAPACITY * 2 );
+        try
+        {
+            while( open )
+            {
+                int entry;
+                while( buffer.remaining() >= 2 && ( entry = outgoing.poll() ) != GarbageMailbox.EMPTY )
+                {
+                    buffer.put( (byte)GarbageMailbox.linesOf( entry ) ).put( (byte)GarbageMailbox.holeOf( entry ) );
+                    linesSent += GarbageMailbox.linesOf( entry );
+                }
+                if( buffer.position() > 0 )
+                {
+                    buffer.flip();
+                    while( buffer.hasRemaining() )
+                    {
+                        channel.write( buffer );
+                    }
+                    buffer.clear();
+                }
+                else
+                {
+                    LockSupport.park( this );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            close();
+        }
+    }
+
+    /**
+     * Hands the garbage the opponent sends to the game's mailbox.
+     */
+    private void read()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( 256 );
+        GarbageMailbox mailbox = game.getGarbageMailbox();
+        try
+        {
+            while( open && channel.read( buffer ) >= 0 )
+            {
+                buffer.flip();
+                while( buffer.remaining() >= 2 )
+                {
+                    int lines = buffer.get() & 0xFF, hole = buffer.get() & 0xFF;
+                    if( mailbox.offer( lines, hole ) )
+                    {
+                        linesReceived += lines;
+                    }
+                }
+                buffer.compact();
+            }
+        }
+        catch( IOException e )
+        {
+            // closed by either side
+        }
+        close();
+    }
+
+    /**
+     *
+     * @return Returns the number of garbage rows sent to the opponent.
+     */
+    public long getLinesSent()
+    {
+        return linesSent;
+    }
+
+    /**
+     *
+     * @return Returns the number of garbage rows received from the opponent.
+     */
+    public long getLinesReceived()
+    {
+        return linesReceived;
+    }
+
+    /**
+     *
+     * @return Returns true until the connection is closed.
+     */
+    public boolean isOpen()
+    {
+        return open;
+    }
+}
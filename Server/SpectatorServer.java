@@ -0,0 +1,437 @@
+package Server;
+
+import Observables.BoardCodec;
+import Observables.BoardSnapshot;
+import Observables.GameListener;
+import Observables.TetrisGame;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Streams a game to any number of spectators over localhost TCP.
+ *
+ * The server is attached to the game as a listener, like the Board. After
+ * every update the game's thread only takes a snapshot of the board and
+ * wakes the server's single network thread, which encodes the board once
+ * as a frame and writes that same frame to every spectator, each through
+ * its own views of the shared buffers.
+ *
+ * Every frame starts with a header of a type byte, the frame's sequence
+ * number as an int and the length of the body as a short, all big endian.
+ * The body is a board encoded by BoardCodec, which a DecodedBoard reads.
+ *
+ * KEY (1)    the whole board
+ * DELTA (2)  the cells that changed since the frame numbered one less, or
+ *            the whole board when that is smaller
+ *
+ * A spectator gets a delta when it has the frame before, and a key frame
+ * otherwise. A spectator that is still busy with an older frame skips the
+ * newer ones and catches up with a key frame, and one that stays behind
+ * for too many frames is disconnected. While nobody watches no frames are
+ * built, the first spectator to connect gets a key frame of the latest
+ * board. Spectators send nothing, what they send is read and thrown away.
+ */
+public class SpectatorServer implements GameListener, Runnable
+{
+    public static final int DEFAULT_PORT = 7778;
+    public static final byte KEY = BoardCodec.KEY, DELTA = BoardCodec.DELTA;
+    private static final int HEADER_SIZE = 7;
+    // A second at 60 ticks per second.
+    private static final int DEFAULT_MAX_LAG_FRAMES = 60;
+
+    //Attributes
+    private final int port;
+    private final int maxLagFrames;
+    private final ArrayList<Spectator> spectators = new ArrayList<Spectator>();
+    private final ByteBuffer discard = ByteBuffer.allocate( 256 );
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running;
+    // Written by the game's thread, read by the network thread.
+    private volatile BoardSnapshot latest;
+    private volatile int spectatorCount;
+    // Only used by the network thread.
+    private BoardSnapshot broadcast;
+    private Frame frame;
+    private int nextSequence;
+    private long dropped, framesSent;
+
+    /**
+     * Creates a server that drops spectators a second behind.
+     * @param port the localhost port spectators connect to.
+     */
+    public SpectatorServer( int port )
+    {
+        this( port, DEFAULT_MAX_LAG_FRAMES );
+    }
+
+    /**
+     * Creates a server.
+     * @param port the localhost port spectators connect to.
+     * @param maxLagFrames how many frames a spectator may miss in a row before it is disconnected.
+     */
+    public SpectatorServer( int port, int maxLagFrames )
+    {
+        this.port = port;
+        this.maxLagFrames = maxLagFrames;
+    }
+
+    /**
+     * Opens the port.
+     * @throws IOException if the port cannot be opened.
+     */
+    public void open() throws IOException
+    {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind( new InetSocketAddress( "127.0.0.1", port ) );
+        serverChannel.configureBlocking( false );
+        serverChannel.register( selector, SelectionKey.OP_ACCEPT );
+        running = true;
+    }
+
+    /**
+     * Serves spectators until the server is closed.
+     */
+    public void run()
+    {
+        try
+        {
+            while( running )
+            {
+                selector.select( 100 );
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while( keys.hasNext() )
+                {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if( key.isValid() && key.isAcceptable() )
+                    {
+                        accept();
+                    }
+                    else
+                    {
+                        Spectator spectator = (Spectator)key.attachment();
+                        if( key.isValid() && key.isReadable() )
+                        {
+                            read( spectator );
+                        }
+                        if( key.isValid() && key.isWritable() )
+                        {
+                            flush( spectator );
+                        }
+                    }
+                }
+                BoardSnapshot board = latest;
+                // Frames are only built for someone to watch them.
+                if( board != null && board != broadcast && !spectators.isEmpty() )
+                {
+                    broadcast( board );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            e.printStackTrace();
+        }
+        finally
+        {
+            shutdown();
+        }
+    }
+
+    /**
+     * Stops the server. May be called from any thread.
+     */
+    public void close()
+    {
+        running = false;
+        if( selector != null )
+        {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Closes every connection.
+     */
+    private void shutdown()
+    {
+        try
+        {
+            for( SelectionKey key : selector.keys() )
+            {
+                key.channel().close();
+            }
+            selector.close();
+        }
+        catch( IOException e )
+        {
+            // nothing left to do with a connection that will not close
+        }
+        spectators.clear();
+        spectatorCount = 0;
+    }
+
+    /**
+     * Takes a snapshot of the board for the network thread. Called on the
+     * game's thread once per update, so at most once per tick.
+     * @param game the game that changed.
+     */
+    public void gameUpdated( TetrisGame game )
+    {
+        BoardSnapshot board = game.snapshot();
+        if( board != latest )
+        {
+            latest = board;
+            if( spectatorCount > 0 )
+            {
+                selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * The spectators keep watching the final board.
+     * @param game the game that was lost.
+     */
+    public void gameLost( TetrisGame game )
+    {
+    }
+
+    private void accept() throws IOException
+    {
+        SocketChannel client = serverChannel.accept();
+        if( client != null )
+        {
+            client.configureBlocking( false );
+            Spectator spectator = new Spectator( client );
+            spectator.key = client.register( selector, SelectionKey.OP_READ, spectator );
+            spectators.add( spectator );
+            spectatorCount = spectators.size();
+            BoardSnapshot board = latest;
+            if( board != null && board != broadcast )
+            {
+                // No frame was built for the latest board, this sends one to the new spectator too.
+                broadcast( board );
+            }
+            else if( frame != null )
+            {
+                send( spectator );
+            }
+        }
+    }
+
+    /**
+     * Reads and throws away whatever a spectator sent, noticing when it hung up.
+     */
+    private void read( Spectator spectator )
+    {
+        try
+        {
+            discard.clear();
+            if( spectator.channel.read( discard ) < 0 )
+            {
+                disconnect( spectator );
+            }
+        }
+        catch( IOException e )
+        {
+            disconnect( spectator );
+        }
+    }
+
+    /**
+     * Encodes a new frame and hands it to every spectator.
+     * @param board the board to send.
+     */
+    private void broadcast( BoardSnapshot board )
+    {
+        frame = new Frame( nextSequence++, board, broadcast );
+        broadcast = board;
+        // Backwards, as spectators that fall too far behind are removed.
+        for( int i = spectators.size() - 1; i >= 0; i-- )
+        {
+            Spectator spectator = spectators.get( i );
+            if( spectator.pending == null )
+            {
+                send( spectator );
+            }
+            else if( ++spectator.lagFrames > maxLagFrames )
+            {
+                dropped++;
+                disconnect( spectator );
+            }
+        }
+    }
+
+    /**
+     * Starts writing the latest frame to an idle spectator, as a delta when
+     * it has the frame before and as a key frame otherwise.
+     */
+    private void send( Spectator spectator )
+    {
+        boolean delta = frame.deltaBody != null && spectator.sequence == frame.sequence - 1;
+        ByteBuffer header = delta ? frame.deltaHeader : frame.keyHeader;
+        ByteBuffer body = delta ? frame.deltaBody : frame.keyBody;
+        spectator.pending = new ByteBuffer[] { header.duplicate(), body.duplicate() };
+        spectator.sequence = frame.sequence;
+        framesSent++;
+        flush( spectator );
+    }
+
+    /**
+     * Writes as much of a spectator's frame as the connection takes. Once
+     * the frame is written the spectator gets the latest frame if it missed
+     * any, otherwise it waits for the next one.
+     */
+    private void flush( Spectator spectator )
+    {
+        try
+        {
+            spectator.channel.write( spectator.pending );
+            if( spectator.pending[ 1 ].hasRemaining() )
+            {
+                spectator.key.interestOps( SelectionKey.OP_READ | SelectionKey.OP_WRITE );
+            }
+            else
+            {
+                spectator.pending = null;
+                spectator.lagFrames = 0;
+                spectator.key.interestOps( SelectionKey.OP_READ );
+                if( spectator.sequence != frame.sequence )
+                {
+                    send( spectator );
+                }
+            }
+        }
+        catch( IOException e )
+        {
+            disconnect( spectator );
+        }
+    }
+
+    private void disconnect( Spectator spectator )
+    {
+        spectator.key.cancel();
+        try
+        {
+            spectator.channel.close();
+        }
+        catch( IOException e )
+        {
+            // the connection is gone either way
+        }
+        spectators.remove( spectator );
+        spectatorCount = spectators.size();
+        if( spectators.isEmpty() )
+        {
+            // The next spectator starts from a key frame of whatever board is latest by then.
+            broadcast = null;
+            frame = null;
+        }
+    }
+
+    /**
+     *
+     * @return Returns the number of connected spectators.
+     */
+    public int getSpectatorCount()
+    {
+        return spectatorCount;
+    }
+
+    /**
+     *
+     * @return Returns the number of spectators disconnected for falling behind.
+     */
+    public long getDroppedCount()
+    {
+        return dropped;
+    }
+
+    /**
+     *
+     * @return Returns the number of frames started to spectators.
+     */
+    public long getFramesSent()
+    {
+        return framesSent;
+    }
+
+    /**
+     * A board encoded once for every spectator, as a key frame and, when
+     * there is a frame before it, as a delta.
+     */
+    private static class Frame
+    {
+        private final int sequence;
+        private final ByteBuffer keyHeader, keyBody, deltaHeader, deltaBody;
+
+        Frame( int sequence, BoardSnapshot board, BoardSnapshot previous )
+        {
+            this.sequence = sequence;
+            // The active piece is part of the board, it belongs to the game's thread.
+            ByteBuffer buffer = ByteBuffer.allocate( BoardCodec.maxFrameSize( board.getWidth(), board.getHeight() ) );
+            BoardCodec.encodeKey( board, null, buffer );
+            keyBody = copy( buffer );
+            keyHeader = header( KEY, sequence, keyBody.remaining() );
+            if( previous != null )
+            {
+                buffer.clear();
+                byte kind = BoardCodec.encodeDelta( previous, board, null, buffer );
+                deltaBody = copy( buffer );
+                deltaHeader = header( kind, sequence, deltaBody.remaining() );
+            }
+            else
+            {
+                deltaBody = null;
+                deltaHeader = null;
+            }
+        }
+
+        /**
+         * Copies what was written to a buffer into a read only buffer of its own size.
+         */
+        private static ByteBuffer copy( ByteBuffer written )
+        {
+            written.flip();
+            ByteBuffer answer = ByteBuffer.allocate( written.remaining() );
+            answer.put( written );
+            return answer.flip().asReadOnlyBuffer();
+        }
+
+        private static ByteBuffer header( byte type, int sequence, int length )
+        {
+            ByteBuffer answer = ByteBuffer.allocate( HEADER_SIZE );
+            answer.put( type ).putInt( sequence ).putShort( (short)length );
+            return answer.flip().asReadOnlyBuffer();
+        }
+    }
+
+    /**
+     * A connected spectator and the frame being written to it.
+     */
+    private static class Spectator
+    {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        // The views of the shared frame still being written, null when idle.
+        private ByteBuffer[] pending;
+        // The last frame started, -1 before the first.
+        private int sequence = -1;
+        private int lagFrames;
+
+        Spectator( SocketChannel channel )
+        {
+            this.channel = channel;
+        }
+    }
+}